@@ -0,0 +1,80 @@
+package com.weather.forecast.ai;
+
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+
+/**
+ * Groups the daily max temperature, min temperature and rain probability models,
+ * which all take the same feature vector. The feature matrix is built once and
+ * every target is evaluated against it; native models share a single DMatrix.
+ * This class is not a bean itself, but is created by the AppConfig.
+ */
+public class DailyForecastModelGroup {
+
+    /**
+     * Predictions for every target, one value per input row.
+     */
+    public static class Predictions {
+        private final float[] maxTemp;
+        private final float[] minTemp;
+        private final float[] rainProb;
+
+        public Predictions(float[] maxTemp, float[] minTemp, float[] rainProb) {
+            this.maxTemp = maxTemp;
+            this.minTemp = minTemp;
+            this.rainProb = rainProb;
+        }
+
+        public float[] getMaxTemp() { return maxTemp; }
+
+        public float[] getMinTemp() { return minTemp; }
+
+        public float[] getRainProb() { return rainProb; }
+    }
+
+    private final ForecastModel maxTempModel;
+    private final ForecastModel minTempModel;
+    private final ForecastModel rainProbModel;
+
+    public DailyForecastModelGroup(ForecastModel maxTempModel, ForecastModel minTempModel,
+            ForecastModel rainProbModel) {
+        this.maxTempModel = maxTempModel;
+        this.minTempModel = minTempModel;
+        this.rainProbModel = rainProbModel;
+    }
+
+    /**
+     * Predicts all targets for a row-major flat feature array.
+     * @param data Row-major features, {@code nrow * ncol} values.
+     * @param nrow Number of rows.
+     * @param ncol Number of features per row.
+     * @return Predictions for every target, in row order.
+     * @throws XGBoostError if a model is not loaded or prediction fails.
+     * @throws IllegalArgumentException if the input or model output dimensions are inconsistent.
+     */
+    public Predictions predictBatch(float[] data, int nrow, int ncol) throws XGBoostError, IllegalArgumentException {
+        if (nrow <= 0 || data.length != nrow * ncol) {
+            throw new IllegalArgumentException("Feature array size does not match " + nrow + " x " + ncol + ".");
+        }
+        DMatrix shared = null;
+        try {
+            ForecastModel[] models = { maxTempModel, minTempModel, rainProbModel };
+            float[][] results = new float[models.length][];
+            for (int i = 0; i < models.length; i++) {
+                if (models[i].usesNativeEngine()) {
+                    if (shared == null) {
+                        shared = new DMatrix(data, nrow, ncol, Float.NaN);
+                    }
+                    results[i] = models[i].predict(shared, nrow);
+                } else {
+                    results[i] = models[i].predictBatch(data, nrow, ncol);
+                }
+            }
+            return new Predictions(results[0], results[1], results[2]);
+        } finally {
+            if (shared != null) {
+                shared.dispose();
+            }
+        }
+    }
+}
@@ -9,34 +9,147 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.io.InputStream;
 
 /**
  * A wrapper for the XGBoost model to handle loading and prediction.
  * This class is not a bean itself, but is created by the AppConfig.
+ * Two engines are available: "xgboost" (native xgboost4j Booster) and "java"
+ * (pure-Java {@link TreeEnsembleModel}, no JNI and no native library needed).
+ * The loaded model can be replaced at runtime with {@link #swap(LoadedModel)};
+ * every prediction reads the current model once, so a swap never mixes versions.
  */
 public class ForecastModel {
 
-    private Booster model;
+    public static final String ENGINE_XGBOOST = "xgboost";
+    public static final String ENGINE_JAVA = "java";
+
+    /** Version label of the model bundled in the classpath. */
+    public static final String CLASSPATH_VERSION = "classpath";
+
+    /**
+     * One immutable loaded model version. Exactly one of booster/treeModel is set.
+     */
+    public static final class LoadedModel {
+        private final Booster booster;
+        private final TreeEnsembleModel treeModel;
+        private final String version;
+
+        private LoadedModel(Booster booster, TreeEnsembleModel treeModel, String version) {
+            this.booster = booster;
+            this.treeModel = treeModel;
+            this.version = version;
+        }
+
+        public String getVersion() {
+            return version;
+        }
+
+        /**
+         * Number of features the model was trained with.
+         */
+        public int getNumFeature() throws XGBoostError {
+            return treeModel != null ? treeModel.getNumFeature() : (int) booster.getNumFeature();
+        }
+
+        /**
+         * Releases the native booster. Only call once no prediction can still be using it.
+         */
+        public void dispose() {
+            if (booster != null) {
+                booster.dispose();
+            }
+        }
+    }
+
+    private final String name;
+    private final boolean javaEngine;
+    private volatile LoadedModel current;
 
     public ForecastModel(String modelPath) {
+        this(modelPath, ENGINE_XGBOOST);
+    }
+
+    public ForecastModel(String modelPath, String engine) {
+        this.name = modelName(modelPath);
+        this.javaEngine = ENGINE_JAVA.equalsIgnoreCase(engine);
         try {
             // Load the model as a classpath resource
             InputStream inputStream = ForecastModel.class.getClassLoader().getResourceAsStream(modelPath);
             if (inputStream == null) {
                 System.err.println("Warning: Model file not found in classpath at " + modelPath);
                 System.err.println("Prediction will not work until a valid model is placed there.");
-                this.model = null;
             } else {
-                this.model = XGBoost.loadModel(inputStream);
-                System.out.println("Successfully loaded model from classpath: " + modelPath);
+                try (InputStream in = inputStream) {
+                    this.current = load(in, modelPath, CLASSPATH_VERSION);
+                }
+                System.out.println("Successfully loaded model from classpath: " + modelPath
+                        + " (engine: " + getEngine() + ")");
             }
         } catch (Exception e) { // Catching generic Exception because stream handling can throw IOException
-            this.model = null;
+            this.current = null;
             System.err.println("Error loading XGBoost model from classpath " + modelPath + ": " + e.getMessage());
         }
     }
 
+    /**
+     * Loads a model version with this model's engine without making it current.
+     * @param inputStream The serialized model, closed by the caller.
+     * @param fileName File name of the model, used to detect the JSON format.
+     * @param version Version label reported once the model is swapped in.
+     * @throws IOException if the stream cannot be read or the model is invalid.
+     * @throws XGBoostError if the native booster cannot load the model.
+     */
+    public LoadedModel load(InputStream inputStream, String fileName, String version)
+            throws IOException, XGBoostError {
+        if (javaEngine) {
+            return new LoadedModel(null, TreeEnsembleModel.load(inputStream, fileName), version);
+        }
+        return new LoadedModel(XGBoost.loadModel(inputStream), null, version);
+    }
+
+    /**
+     * Atomically replaces the current model. Predictions already running finish on the
+     * previous model, which is returned so the caller can dispose it after a grace period.
+     */
+    public LoadedModel swap(LoadedModel model) {
+        LoadedModel previous = this.current;
+        this.current = model;
+        return previous;
+    }
+
+    /**
+     * Model name, taken from the file name of the configured path (e.g. "daily_model_max_temp").
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getEngine() {
+        return javaEngine ? ENGINE_JAVA : ENGINE_XGBOOST;
+    }
+
+    /**
+     * Version of the current model, or null if no model is loaded.
+     */
+    public String getVersion() {
+        LoadedModel model = current;
+        return model != null ? model.version : null;
+    }
+
+    /**
+     * Number of features of the current model, or 0 if no model is loaded.
+     */
+    public int getNumFeature() throws XGBoostError {
+        LoadedModel model = current;
+        return model != null ? model.getNumFeature() : 0;
+    }
+
+    public boolean isLoaded() {
+        return current != null;
+    }
+
     /**
      * Predicts a single result for a given set of features.
      * @param features A flat float array representing the input features.
@@ -45,15 +158,123 @@ public class ForecastModel {
      * @throws IllegalArgumentException if the model returns unexpected output dimensions.
      */
     public float predict(float[] features) throws XGBoostError, IllegalArgumentException {
+        LoadedModel model = current;
+        if (model != null && model.treeModel != null) {
+            checkFeatureCount(model.treeModel, features.length);
+            return model.treeModel.predict(features, 0);
+        }
+        return predictBatch(features, 1, features.length)[0];
+    }
+
+    /**
+     * Predicts one result per row using a single DMatrix for all rows.
+     * @param rows Feature rows, all of the same length.
+     * @return One prediction per row, in the same order.
+     * @throws XGBoostError if the model is not loaded or prediction fails.
+     * @throws IllegalArgumentException if rows have different lengths or the model returns unexpected output dimensions.
+     */
+    public float[] predictBatch(float[][] rows) throws XGBoostError, IllegalArgumentException {
+        if (rows.length == 0) {
+            return new float[0];
+        }
+        int ncol = rows[0].length;
+        float[] data = new float[rows.length * ncol];
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i].length != ncol) {
+                throw new IllegalArgumentException("All feature rows must have the same length.");
+            }
+            System.arraycopy(rows[i], 0, data, i * ncol, ncol);
+        }
+        return predictBatch(data, rows.length, ncol);
+    }
+
+    /**
+     * Predicts one result per row from a row-major flat feature array.
+     * The native DMatrix is released as soon as prediction finishes.
+     * @param data Row-major features, {@code nrow * ncol} values.
+     * @param nrow Number of rows.
+     * @param ncol Number of features per row.
+     * @return One prediction per row, in the same order.
+     * @throws XGBoostError if the model is not loaded or prediction fails.
+     * @throws IllegalArgumentException if the input or model output dimensions are inconsistent.
+     */
+    public float[] predictBatch(float[] data, int nrow, int ncol) throws XGBoostError, IllegalArgumentException {
+        return predictBatch(current, data, nrow, ncol);
+    }
+
+    /**
+     * Predicts with a specific model version, e.g. to validate and warm up a
+     * candidate before it is swapped in.
+     */
+    public float[] predictBatch(LoadedModel model, float[] data, int nrow, int ncol)
+            throws XGBoostError, IllegalArgumentException {
         if (model == null) {
             throw new XGBoostError("Model is not loaded, cannot perform prediction.");
         }
-        DMatrix dmat = new DMatrix(features, 1, features.length, Float.NaN);
-        float[][] prediction = model.predict(dmat);
-        if (prediction != null && prediction.length > 0 && prediction[0].length > 0) {
-            return prediction[0][0]; // Assuming a single output value
-        } else {
+        if (nrow <= 0 || data.length != nrow * ncol) {
+            throw new IllegalArgumentException("Feature array size does not match " + nrow + " x " + ncol + ".");
+        }
+        if (model.treeModel != null) {
+            checkFeatureCount(model.treeModel, ncol);
+            float[] results = new float[nrow];
+            for (int i = 0; i < nrow; i++) {
+                results[i] = model.treeModel.predict(data, i * ncol);
+            }
+            return results;
+        }
+        DMatrix dmat = new DMatrix(data, nrow, ncol, Float.NaN);
+        try {
+            return predict(model.booster, dmat, nrow);
+        } finally {
+            dmat.dispose();
+        }
+    }
+
+    /**
+     * Predicts with the native Booster on a DMatrix owned by the caller, so several
+     * models can share one matrix. The caller is responsible for disposing it.
+     */
+    float[] predict(DMatrix dmat, int nrow) throws XGBoostError, IllegalArgumentException {
+        LoadedModel model = current;
+        if (model == null || model.booster == null) {
+            throw new XGBoostError("Native model is not loaded, cannot perform prediction.");
+        }
+        return predict(model.booster, dmat, nrow);
+    }
+
+    private static float[] predict(Booster booster, DMatrix dmat, int nrow)
+            throws XGBoostError, IllegalArgumentException {
+        float[][] prediction = booster.predict(dmat);
+        if (prediction == null || prediction.length != nrow) {
             throw new IllegalArgumentException("Model prediction returned no valid output.");
         }
+        float[] results = new float[nrow];
+        for (int i = 0; i < nrow; i++) {
+            if (prediction[i].length == 0) {
+                throw new IllegalArgumentException("Model prediction returned no valid output.");
+            }
+            results[i] = prediction[i][0]; // Assuming a single output value
+        }
+        return results;
+    }
+
+    /**
+     * True when this model is scored by the native xgboost4j Booster.
+     */
+    boolean usesNativeEngine() {
+        return !javaEngine;
+    }
+
+    private static void checkFeatureCount(TreeEnsembleModel treeModel, int ncol) {
+        if (ncol < treeModel.getNumFeature()) {
+            throw new IllegalArgumentException("Model expects " + treeModel.getNumFeature()
+                    + " features but got " + ncol + ".");
+        }
+    }
+
+    private static String modelName(String modelPath) {
+        String fileName = modelPath.substring(modelPath.lastIndexOf('/') + 1);
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
     }
 }
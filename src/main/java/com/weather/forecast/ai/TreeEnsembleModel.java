@@ -0,0 +1,227 @@
+package com.weather.forecast.ai;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pure-Java scorer for XGBoost gbtree models (saved with save_model() as UBJ or JSON).
+ * All trees are flattened into shared primitive arrays, so scoring is a tight loop
+ * with no allocation and no JNI call into the native xgboost library.
+ * Supports single-target regression and logistic objectives with numerical splits.
+ */
+public class TreeEnsembleModel {
+
+    private final int numFeature;
+    private final int[] treeRoots;
+    private final int[] splitFeature;
+    private final float[] splitCondition; // threshold for split nodes, leaf value for leaves
+    private final int[] leftChild;        // -1 for leaves
+    private final int[] rightChild;
+    private final boolean[] defaultLeft;
+    private final float baseMargin;
+    private final boolean logistic;
+
+    private TreeEnsembleModel(int numFeature, int[] treeRoots, int[] splitFeature, float[] splitCondition,
+            int[] leftChild, int[] rightChild, boolean[] defaultLeft, float baseMargin, boolean logistic) {
+        this.numFeature = numFeature;
+        this.treeRoots = treeRoots;
+        this.splitFeature = splitFeature;
+        this.splitCondition = splitCondition;
+        this.leftChild = leftChild;
+        this.rightChild = rightChild;
+        this.defaultLeft = defaultLeft;
+        this.baseMargin = baseMargin;
+        this.logistic = logistic;
+    }
+
+    /**
+     * Loads a model saved by XGBoost. Files ending in ".json" are read as JSON,
+     * everything else as UBJ (the default format of save_model() for ".bin"/".ubj").
+     */
+    public static TreeEnsembleModel load(InputStream inputStream, String modelPath) throws IOException {
+        Object root;
+        if (modelPath.endsWith(".json")) {
+            root = new ObjectMapper().readValue(inputStream, Map.class);
+        } else {
+            // UbjsonReader reads byte by byte; unbuffered, every byte would be a read call
+            root = new UbjsonReader(new BufferedInputStream(inputStream)).read();
+        }
+        return fromModel(asMap(root, "model"));
+    }
+
+    /**
+     * Predicts a single row starting at {@code offset} of {@code features}.
+     */
+    public float predict(float[] features, int offset) {
+        float margin = baseMargin;
+        for (int root : treeRoots) {
+            int node = root;
+            while (leftChild[node] != -1) {
+                float value = features[offset + splitFeature[node]];
+                if (Float.isNaN(value)) {
+                    node = defaultLeft[node] ? leftChild[node] : rightChild[node];
+                } else {
+                    node = value < splitCondition[node] ? leftChild[node] : rightChild[node];
+                }
+            }
+            margin += splitCondition[node];
+        }
+        return logistic ? (float) (1.0 / (1.0 + Math.exp(-margin))) : margin;
+    }
+
+    public int getNumFeature() {
+        return numFeature;
+    }
+
+    public int getNumTrees() {
+        return treeRoots.length;
+    }
+
+    private static TreeEnsembleModel fromModel(Map<String, Object> root) throws IOException {
+        Map<String, Object> learner = asMap(root.get("learner"), "learner");
+        Map<String, Object> modelParam = asMap(learner.get("learner_model_param"), "learner_model_param");
+        Map<String, Object> booster = asMap(learner.get("gradient_booster"), "gradient_booster");
+        Map<String, Object> objective = asMap(learner.get("objective"), "objective");
+
+        if (!"gbtree".equals(booster.get("name"))) {
+            throw new IOException("Unsupported booster: " + booster.get("name"));
+        }
+        if (parseInt(modelParam.get("num_class")) > 1 || parseInt(modelParam.get("num_target")) > 1) {
+            throw new IOException("Only single-target models are supported");
+        }
+
+        String objectiveName = String.valueOf(objective.get("name"));
+        boolean logistic;
+        switch (objectiveName) {
+            case "reg:squarederror":
+            case "reg:squaredlogerror":
+            case "reg:pseudohubererror":
+            case "reg:absoluteerror":
+                logistic = false;
+                break;
+            case "reg:logistic":
+            case "binary:logistic":
+                logistic = true;
+                break;
+            default:
+                throw new IOException("Unsupported objective: " + objectiveName);
+        }
+
+        // base_score is stored in output space, as "2.5E1" or "[2.5E1]" depending on the XGBoost version
+        float baseScore = Float.parseFloat(String.valueOf(modelParam.get("base_score")).replaceAll("[\\[\\]]", ""));
+        float baseMargin = logistic ? (float) Math.log(baseScore / (1.0 - baseScore)) : baseScore;
+        int numFeature = parseInt(modelParam.get("num_feature"));
+
+        List<?> trees = asList(asMap(booster.get("model"), "model").get("trees"), "trees");
+        int totalNodes = 0;
+        for (Object tree : trees) {
+            totalNodes += intArray(asMap(tree, "tree").get("left_children")).length;
+        }
+
+        int[] treeRoots = new int[trees.size()];
+        int[] splitFeature = new int[totalNodes];
+        float[] splitCondition = new float[totalNodes];
+        int[] leftChild = new int[totalNodes];
+        int[] rightChild = new int[totalNodes];
+        boolean[] defaultLeft = new boolean[totalNodes];
+
+        int offset = 0;
+        for (int t = 0; t < trees.size(); t++) {
+            Map<String, Object> tree = asMap(trees.get(t), "tree");
+            int[] left = intArray(tree.get("left_children"));
+            int[] right = intArray(tree.get("right_children"));
+            int[] indices = intArray(tree.get("split_indices"));
+            float[] conditions = floatArray(tree.get("split_conditions"));
+            int[] defaults = intArray(tree.get("default_left"));
+            int[] types = tree.containsKey("split_type") ? intArray(tree.get("split_type")) : new int[0];
+
+            treeRoots[t] = offset;
+            for (int n = 0; n < left.length; n++) {
+                if (n < types.length && types[n] != 0) {
+                    throw new IOException("Categorical splits are not supported");
+                }
+                int index = offset + n;
+                leftChild[index] = left[n] == -1 ? -1 : offset + left[n];
+                rightChild[index] = right[n] == -1 ? -1 : offset + right[n];
+                splitFeature[index] = indices[n];
+                splitCondition[index] = conditions[n];
+                defaultLeft[index] = defaults[n] != 0;
+                if (leftChild[index] != -1 && indices[n] >= numFeature) {
+                    throw new IOException("Split feature index out of range: " + indices[n]);
+                }
+            }
+            offset += left.length;
+        }
+
+        return new TreeEnsembleModel(numFeature, treeRoots, splitFeature, splitCondition,
+                leftChild, rightChild, defaultLeft, baseMargin, logistic);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> asMap(Object value, String name) throws IOException {
+        if (!(value instanceof Map)) {
+            throw new IOException("Invalid XGBoost model: missing object '" + name + "'");
+        }
+        return (Map<String, Object>) value;
+    }
+
+    private static List<?> asList(Object value, String name) throws IOException {
+        if (!(value instanceof List)) {
+            throw new IOException("Invalid XGBoost model: missing array '" + name + "'");
+        }
+        return (List<?>) value;
+    }
+
+    private static int parseInt(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        return value == null ? 0 : Integer.parseInt(String.valueOf(value));
+    }
+
+    private static int[] intArray(Object value) throws IOException {
+        if (value instanceof int[]) {
+            return (int[]) value;
+        }
+        if (value instanceof long[]) {
+            long[] longs = (long[]) value;
+            int[] result = new int[longs.length];
+            for (int i = 0; i < longs.length; i++) {
+                result[i] = (int) longs[i];
+            }
+            return result;
+        }
+        List<?> list = asList(value, "integer array");
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            Object item = list.get(i);
+            result[i] = item instanceof Boolean ? (((Boolean) item) ? 1 : 0) : ((Number) item).intValue();
+        }
+        return result;
+    }
+
+    private static float[] floatArray(Object value) throws IOException {
+        if (value instanceof float[]) {
+            return (float[]) value;
+        }
+        if (value instanceof double[]) {
+            double[] doubles = (double[]) value;
+            float[] result = new float[doubles.length];
+            for (int i = 0; i < doubles.length; i++) {
+                result[i] = (float) doubles[i];
+            }
+            return result;
+        }
+        List<?> list = asList(value, "float array");
+        float[] result = new float[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = ((Number) list.get(i)).floatValue();
+        }
+        return result;
+    }
+}
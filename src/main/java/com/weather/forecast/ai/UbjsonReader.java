@@ -0,0 +1,199 @@
+package com.weather.forecast.ai;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal Universal Binary JSON reader, enough to read models saved by XGBoost's save_model().
+ * Objects become {@code Map<String, Object>}, untyped arrays become {@code List<Object>}.
+ * Strongly typed numeric arrays ({@code [$d#...}) are kept as primitive arrays
+ * (float[], double[], int[], long[]) so large tree arrays do not box every value.
+ */
+class UbjsonReader {
+
+    private final DataInputStream in;
+
+    UbjsonReader(InputStream in) {
+        this.in = new DataInputStream(in);
+    }
+
+    Object read() throws IOException {
+        return readValue(in.readUnsignedByte());
+    }
+
+    private Object readValue(int marker) throws IOException {
+        switch (marker) {
+            case '{':
+                return readObject();
+            case '[':
+                return readArray();
+            case 'S':
+            case 'H':
+                return readString();
+            case 'C':
+                return String.valueOf((char) in.readUnsignedByte());
+            case 'Z':
+                return null;
+            case 'T':
+                return Boolean.TRUE;
+            case 'F':
+                return Boolean.FALSE;
+            case 'i':
+                return (long) in.readByte();
+            case 'U':
+                return (long) in.readUnsignedByte();
+            case 'I':
+                return (long) in.readShort();
+            case 'l':
+                return (long) in.readInt();
+            case 'L':
+                return in.readLong();
+            case 'd':
+                return (double) in.readFloat();
+            case 'D':
+                return in.readDouble();
+            default:
+                throw new IOException("Unsupported UBJSON marker: " + (char) marker);
+        }
+    }
+
+    private Map<String, Object> readObject() throws IOException {
+        Map<String, Object> result = new LinkedHashMap<>();
+        int marker = in.readUnsignedByte();
+        int valueType = -1;
+        long count = -1;
+        if (marker == '$') {
+            valueType = in.readUnsignedByte();
+            marker = in.readUnsignedByte();
+        }
+        if (marker == '#') {
+            count = readLength(in.readUnsignedByte());
+            marker = count > 0 ? in.readUnsignedByte() : -1;
+        }
+        if (count >= 0) {
+            for (long i = 0; i < count; i++) {
+                String key = readString(i == 0 ? marker : in.readUnsignedByte());
+                result.put(key, readValue(valueType >= 0 ? valueType : in.readUnsignedByte()));
+            }
+            return result;
+        }
+        while (marker != '}') {
+            String key = readString(marker);
+            result.put(key, read());
+            marker = in.readUnsignedByte();
+        }
+        return result;
+    }
+
+    private Object readArray() throws IOException {
+        int marker = in.readUnsignedByte();
+        int valueType = -1;
+        if (marker == '$') {
+            valueType = in.readUnsignedByte();
+            marker = in.readUnsignedByte();
+        }
+        if (marker == '#') {
+            int count = (int) readLength(in.readUnsignedByte());
+            return valueType >= 0 ? readTypedArray(valueType, count) : readCountedArray(count);
+        }
+        List<Object> result = new ArrayList<>();
+        while (marker != ']') {
+            result.add(readValue(marker));
+            marker = in.readUnsignedByte();
+        }
+        return result;
+    }
+
+    private List<Object> readCountedArray(int count) throws IOException {
+        List<Object> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(read());
+        }
+        return result;
+    }
+
+    private Object readTypedArray(int valueType, int count) throws IOException {
+        switch (valueType) {
+            case 'd': {
+                float[] values = new float[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.readFloat();
+                }
+                return values;
+            }
+            case 'D': {
+                double[] values = new double[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.readDouble();
+                }
+                return values;
+            }
+            case 'i':
+            case 'U':
+            case 'I':
+            case 'l': {
+                int[] values = new int[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = (int) readInteger(valueType);
+                }
+                return values;
+            }
+            case 'L': {
+                long[] values = new long[count];
+                for (int i = 0; i < count; i++) {
+                    values[i] = in.readLong();
+                }
+                return values;
+            }
+            default: {
+                List<Object> values = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    values.add(readValue(valueType));
+                }
+                return values;
+            }
+        }
+    }
+
+    private String readString() throws IOException {
+        return readString(in.readUnsignedByte());
+    }
+
+    private String readString(int lengthMarker) throws IOException {
+        int length = (int) readLength(lengthMarker);
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long readLength(int marker) throws IOException {
+        long length = readInteger(marker);
+        if (length < 0 || length > Integer.MAX_VALUE) {
+            throw new IOException("Invalid UBJSON length: " + length);
+        }
+        return length;
+    }
+
+    private long readInteger(int marker) throws IOException {
+        switch (marker) {
+            case 'i':
+                return in.readByte();
+            case 'U':
+                return in.readUnsignedByte();
+            case 'I':
+                return in.readShort();
+            case 'l':
+                return in.readInt();
+            case 'L':
+                return in.readLong();
+            default:
+                throw new IOException("Expected UBJSON integer marker but got: " + (char) marker);
+        }
+    }
+}
@@ -2,31 +2,101 @@ package com.weather.forecast.api;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PreDestroy;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 
 /**
  * Handles all interactions with the Open-Meteo API.
  * This is a Spring-managed service.
+ * <p>
+ * Mọi request đều chạy non-blocking qua {@link HttpClient#sendAsync} trên một
+ * thread pool riêng có giới hạn. Các request giống hệt nhau (cùng URL) đang
+ * chạy sẽ được gộp lại: chỉ một request thật sự được gửi lên Open-Meteo, các
+ * caller còn lại dùng chung kết quả.
+ * <p>
+ * Response forecast/archive được nhận dưới dạng byte[] và parse streaming thẳng
+ * vào {@link ComprehensiveWeatherReport}, không tạo String hay JsonNode trung gian.
  */
 @Service
 public class OpenMeteoAPI {
 
     private final HttpClient httpClient;
-    private final ObjectMapper objectMapper;
+    private final OpenMeteoResponseParser responseParser;
+    private final ThreadPoolExecutor httpExecutor;
+    private final Duration requestTimeout;
+    private final int batchChunkSize;
+
+    // Các request đang chạy, key = URL đầy đủ
+    private final ConcurrentMap<String, CompletableFuture<byte[]>> inFlightRequests = new ConcurrentHashMap<>();
 
     private static final String API_BASE_URL = "https://api.open-meteo.com/v1";
     private static final String GEOCODING_API_URL = "https://geocoding-api.open-meteo.com/v1/search";
+    private static final String ARCHIVE_API_URL = "https://archive-api.open-meteo.com/v1/archive";
+
+    // Các trường dữ liệu cho forecast (dùng chung cho request đơn và batch)
+    private static final String FORECAST_PARAMS =
+            "&current=temperature_2m,relative_humidity_2m,apparent_temperature,is_day,precipitation,weather_code,cloud_cover,pressure_msl,surface_pressure,wind_speed_10m,wind_direction_10m"
+            +
+            "&hourly=temperature_2m,relative_humidity_2m,apparent_temperature,precipitation_probability,weather_code,visibility,uv_index,is_day,wind_speed_10m"
+            +
+            "&daily=weather_code,temperature_2m_max,temperature_2m_min,apparent_temperature_max,apparent_temperature_min,uv_index_max,precipitation_sum,precipitation_hours,precipitation_probability_max,wind_speed_10m_max,wind_gusts_10m_max,wind_direction_10m_dominant"
+            +
+            "&timezone=auto&forecast_days=8";
+
+    public OpenMeteoAPI(ObjectMapper objectMapper,
+            @Value("${openmeteo.http.pool-size:8}") int poolSize,
+            @Value("${openmeteo.http.queue-capacity:500}") int queueCapacity,
+            @Value("${openmeteo.http.connect-timeout-ms:3000}") long connectTimeoutMs,
+            @Value("${openmeteo.http.request-timeout-ms:10000}") long requestTimeoutMs,
+            @Value("${openmeteo.batch.chunk-size:25}") int batchChunkSize) {
+        this.responseParser = new OpenMeteoResponseParser(objectMapper.getFactory());
+        this.requestTimeout = Duration.ofMillis(requestTimeoutMs);
+        this.batchChunkSize = Math.max(1, batchChunkSize);
 
-    public OpenMeteoAPI(ObjectMapper objectMapper) {
-        this.httpClient = HttpClient.newHttpClient();
-        this.objectMapper = objectMapper;
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.httpExecutor = new ThreadPoolExecutor(poolSize, poolSize, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "open-meteo-http-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.httpExecutor.allowCoreThreadTimeOut(true);
+
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(httpExecutor)
+                .build();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        httpExecutor.shutdownNow();
     }
 
     /**
@@ -44,30 +114,108 @@ public class OpenMeteoAPI {
      * 
      * @param lat latitude
      * @param lon longitude
-     * @return JSON string of the comprehensive weather data.
-     * @throws IOException          if the API call fails.
+     * @return The parsed comprehensive weather report.
+     * @throws IOException          if the API call fails or the response cannot be parsed.
      * @throws InterruptedException if the API call is interrupted.
      */
-    public String getWeatherForecast(double lat, double lon) throws IOException, InterruptedException {
-        String url = API_BASE_URL + "/forecast?latitude=" + lat + "&longitude=" + lon +
-                "&current=temperature_2m,relative_humidity_2m,apparent_temperature,is_day,precipitation,weather_code,cloud_cover,pressure_msl,surface_pressure,wind_speed_10m,wind_direction_10m"
-                +
-                "&hourly=temperature_2m,relative_humidity_2m,apparent_temperature,precipitation_probability,weather_code,visibility,uv_index,is_day,wind_speed_10m"
-                +
-                "&daily=weather_code,temperature_2m_max,temperature_2m_min,apparent_temperature_max,apparent_temperature_min,uv_index_max,precipitation_sum,precipitation_hours,precipitation_probability_max,wind_speed_10m_max,wind_gusts_10m_max,wind_direction_10m_dominant"
-                +
-                "&timezone=auto&forecast_days=8";
+    public ComprehensiveWeatherReport getWeatherForecast(double lat, double lon)
+            throws IOException, InterruptedException {
+        return await(getWeatherForecastAsync(lat, lon));
+    }
 
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .build();
+    /**
+     * Phiên bản non-blocking của {@link #getWeatherForecast(double, double)}.
+     */
+    public CompletableFuture<ComprehensiveWeatherReport> getWeatherForecastAsync(double lat, double lon) {
+        String url = API_BASE_URL + "/forecast?latitude=" + lat + "&longitude=" + lon + FORECAST_PARAMS;
+
+        return fetchAsync(url, "Failed to fetch weather forecast from Open-Meteo API: ")
+                .thenApply(this::parseReport);
+    }
+
+    /**
+     * Lấy dự báo cho nhiều địa điểm bằng tham số latitude/longitude dạng danh
+     * sách (phân tách bởi dấu phẩy) của Open-Meteo. Các địa điểm được chia thành
+     * từng chunk, mỗi chunk là một request; kết quả được trả về qua callback
+     * ngay khi chunk tương ứng hoàn thành.
+     *
+     * @param latitudes  danh sách latitude
+     * @param longitudes danh sách longitude (cùng độ dài với latitudes)
+     * @param consumer   nhận (vị trí trong danh sách, report); có thể được gọi
+     *                   đồng thời từ nhiều thread
+     * @throws IOException          nếu có chunk thất bại (các chunk thành công
+     *                              vẫn đã được trả về qua consumer)
+     * @throws InterruptedException if the API call is interrupted.
+     */
+    public void getWeatherForecastBatch(double[] latitudes, double[] longitudes,
+            BiConsumer<Integer, ComprehensiveWeatherReport> consumer) throws IOException, InterruptedException {
+        await(getWeatherForecastBatchAsync(latitudes, longitudes, consumer));
+    }
+
+    /**
+     * Số địa điểm tối đa trong một request batch.
+     */
+    public int getBatchChunkSize() {
+        return batchChunkSize;
+    }
+
+    /**
+     * Phiên bản non-blocking của
+     * {@link #getWeatherForecastBatch(double[], double[], BiConsumer)}.
+     */
+    public CompletableFuture<Void> getWeatherForecastBatchAsync(double[] latitudes, double[] longitudes,
+            BiConsumer<Integer, ComprehensiveWeatherReport> consumer) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("latitudes and longitudes must have the same length");
+        }
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < latitudes.length; from += batchChunkSize) {
+            int start = from;
+            int end = Math.min(from + batchChunkSize, latitudes.length);
+
+            StringBuilder latParam = new StringBuilder();
+            StringBuilder lonParam = new StringBuilder();
+            for (int i = start; i < end; i++) {
+                if (i > start) {
+                    latParam.append(',');
+                    lonParam.append(',');
+                }
+                latParam.append(latitudes[i]);
+                lonParam.append(longitudes[i]);
+            }
+
+            String url = API_BASE_URL + "/forecast?latitude=" + latParam + "&longitude=" + lonParam + FORECAST_PARAMS;
+            chunks.add(fetchAsync(url, "Failed to fetch batch weather forecast from Open-Meteo API: ")
+                    .thenAccept(body -> deliverBatch(body, start, end, consumer)));
+        }
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture<?>[0]));
+    }
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    /**
+     * Parse response của một chunk. Open-Meteo trả về mảng JSON khi có nhiều
+     * địa điểm, và một object khi chỉ có một địa điểm.
+     */
+    private void deliverBatch(byte[] body, int start, int end,
+            BiConsumer<Integer, ComprehensiveWeatherReport> consumer) {
+        List<ComprehensiveWeatherReport> reports;
+        try {
+            reports = responseParser.parseReports(body);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
 
-        if (response.statusCode() != 200) {
-            throw new IOException("Failed to fetch weather forecast from Open-Meteo API: " + response.body());
+        for (int i = 0; i < reports.size() && start + i < end; i++) {
+            consumer.accept(start + i, reports.get(i));
+        }
+    }
+
+    private ComprehensiveWeatherReport parseReport(byte[] body) {
+        try {
+            return responseParser.parseReport(body);
+        } catch (IOException e) {
+            throw new CompletionException(e);
         }
-        return response.body();
     }
 
     /**
@@ -77,18 +225,18 @@ public class OpenMeteoAPI {
      * @return The JSON response from the geocoding API.
      */
     public String getCoordinatesForCity(String cityName) throws IOException, InterruptedException {
+        return await(getCoordinatesForCityAsync(cityName));
+    }
+
+    /**
+     * Phiên bản non-blocking của {@link #getCoordinatesForCity(String)}.
+     */
+    public CompletableFuture<String> getCoordinatesForCityAsync(String cityName) {
         // URL encode city name to handle spaces and special characters
-        String encodedCityName = java.net.URLEncoder.encode(cityName, java.nio.charset.StandardCharsets.UTF_8);
+        String encodedCityName = java.net.URLEncoder.encode(cityName, StandardCharsets.UTF_8);
         String url = GEOCODING_API_URL + "?name=" + encodedCityName + "&count=1&language=en&format=json";
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
-                .build();
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-
-        if (response.statusCode() != 200) {
-            throw new IOException("Failed to fetch geocoding data: " + response.body());
-        }
-        return response.body();
+        return fetchAsync(url, "Failed to fetch geocoding data: ")
+                .thenApply(body -> new String(body, StandardCharsets.UTF_8));
     }
 
     /**
@@ -98,26 +246,97 @@ public class OpenMeteoAPI {
      * @param lon       longitude
      * @param startDate ngày bắt đầu (format: yyyy-MM-dd)
      * @param endDate   ngày kết thúc (format: yyyy-MM-dd)
-     * @return JSON string của dữ liệu lịch sử
+     * @return Report chỉ có phần daily của dữ liệu lịch sử
      */
-    public String getHistoricalWeather(double lat, double lon, String startDate, String endDate)
+    public ComprehensiveWeatherReport getHistoricalWeather(double lat, double lon, String startDate, String endDate)
             throws IOException, InterruptedException {
-        String url = "https://archive-api.open-meteo.com/v1/archive" +
+        return await(getHistoricalWeatherAsync(lat, lon, startDate, endDate));
+    }
+
+    /**
+     * Phiên bản non-blocking của
+     * {@link #getHistoricalWeather(double, double, String, String)}.
+     */
+    public CompletableFuture<ComprehensiveWeatherReport> getHistoricalWeatherAsync(double lat, double lon, String startDate,
+            String endDate) {
+        String url = ARCHIVE_API_URL +
                 "?latitude=" + lat + "&longitude=" + lon +
                 "&start_date=" + startDate + "&end_date=" + endDate +
                 "&daily=weather_code,temperature_2m_max,temperature_2m_min,precipitation_sum,precipitation_hours,wind_speed_10m_max"
                 +
                 "&timezone=auto";
 
+        return fetchAsync(url, "Failed to fetch historical weather from Open-Meteo Archive API: ")
+                .thenApply(this::parseReport);
+    }
+
+    /**
+     * Gửi GET request bất đồng bộ, gộp các request trùng URL đang chạy.
+     * Mỗi caller nhận một bản copy của future chung nên việc cancel từ một
+     * caller không ảnh hưởng tới các caller khác.
+     */
+    private CompletableFuture<byte[]> fetchAsync(String url, String errorMessage) {
+        CompletableFuture<byte[]> inFlight = inFlightRequests.get(url);
+        if (inFlight != null) {
+            return inFlight.copy();
+        }
+
+        CompletableFuture<byte[]> promise = new CompletableFuture<>();
+        inFlight = inFlightRequests.putIfAbsent(url, promise);
+        if (inFlight != null) {
+            return inFlight.copy();
+        }
+
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
+                .timeout(requestTimeout)
+                .GET()
                 .build();
 
-        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        try {
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, error) -> {
+                        inFlightRequests.remove(url, promise);
+                        if (error != null) {
+                            promise.completeExceptionally(unwrap(error));
+                        } else if (response.statusCode() != 200) {
+                            promise.completeExceptionally(new IOException(
+                                    errorMessage + new String(response.body(), StandardCharsets.UTF_8)));
+                        } else {
+                            promise.complete(response.body());
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlightRequests.remove(url, promise);
+            promise.completeExceptionally(e);
+        }
+        return promise.copy();
+    }
+
+    /**
+     * Chờ kết quả của một request bất đồng bộ, giữ nguyên kiểu exception của
+     * API blocking cũ.
+     */
+    private static <T> T await(CompletableFuture<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            throw e;
+        } catch (ExecutionException e) {
+            Throwable cause = unwrap(e.getCause());
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException(cause.getMessage(), cause);
+        }
+    }
 
-        if (response.statusCode() != 200) {
-            throw new IOException("Failed to fetch historical weather from Open-Meteo Archive API: " + response.body());
+    private static Throwable unwrap(Throwable error) {
+        while ((error instanceof CompletionException || error instanceof ExecutionException)
+                && error.getCause() != null) {
+            error = error.getCause();
         }
-        return response.body();
+        return error;
     }
 }
@@ -0,0 +1,339 @@
+package com.weather.forecast.api;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import com.weather.forecast.model.dto.TimeAxis;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Parse response forecast/archive của Open-Meteo bằng Jackson streaming (JsonParser).
+ * Mỗi chuỗi hourly/daily được đọc thẳng vào cột primitive (float[]/double[]/byte[]) và
+ * {@link TimeAxis} của {@link ComprehensiveWeatherReport}, không qua JsonNode hay List boxed.
+ */
+class OpenMeteoResponseParser {
+
+    // Số phần tử ban đầu của buffer (8 ngày x 24 giờ = 192)
+    private static final int INITIAL_CAPACITY = 192;
+
+    private final JsonFactory jsonFactory;
+
+    OpenMeteoResponseParser(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Parse body trả về một report (request một địa điểm) hoặc mảng report (nhiều địa điểm).
+     */
+    List<ComprehensiveWeatherReport> parseReports(byte[] body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            List<ComprehensiveWeatherReport> reports = new ArrayList<>();
+            if (token == JsonToken.START_ARRAY) {
+                while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                    expect(token, JsonToken.START_OBJECT);
+                    reports.add(readReport(parser));
+                }
+            } else {
+                expect(token, JsonToken.START_OBJECT);
+                reports.add(readReport(parser));
+            }
+            return reports;
+        }
+    }
+
+    /**
+     * Parse body chỉ chứa một report.
+     */
+    ComprehensiveWeatherReport parseReport(byte[] body) throws IOException {
+        List<ComprehensiveWeatherReport> reports = parseReports(body);
+        if (reports.size() != 1) {
+            throw new IOException("Expected one weather report but got " + reports.size());
+        }
+        return reports.get(0);
+    }
+
+    private ComprehensiveWeatherReport readReport(JsonParser parser) throws IOException {
+        double latitude = 0.0;
+        double longitude = 0.0;
+        String timezone = null;
+        ComprehensiveWeatherReport.CurrentWeather current = null;
+        ComprehensiveWeatherReport.HourlyData hourly = null;
+        ComprehensiveWeatherReport.DailyData daily = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "latitude":
+                    latitude = parser.getValueAsDouble();
+                    break;
+                case "longitude":
+                    longitude = parser.getValueAsDouble();
+                    break;
+                case "timezone":
+                    timezone = parser.getValueAsString();
+                    break;
+                case "current":
+                    if (token == JsonToken.START_OBJECT) {
+                        current = readCurrent(parser);
+                    }
+                    break;
+                case "hourly":
+                    if (token == JsonToken.START_OBJECT) {
+                        hourly = readHourly(parser);
+                    }
+                    break;
+                case "daily":
+                    if (token == JsonToken.START_OBJECT) {
+                        daily = readDaily(parser);
+                    }
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new ComprehensiveWeatherReport(latitude, longitude, timezone, current, hourly, daily);
+    }
+
+    private ComprehensiveWeatherReport.CurrentWeather readCurrent(JsonParser parser) throws IOException {
+        String time = "";
+        double temperature = 0.0;
+        int humidity = 0;
+        double apparentTemperature = 0.0;
+        int isDay = 0;
+        int weatherCode = 0;
+        double surfacePressure = 0.0;
+        double windSpeed = 0.0;
+        int windDirection = 0;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "time":
+                    time = parser.getValueAsString("");
+                    break;
+                case "temperature_2m":
+                    temperature = parser.getValueAsDouble();
+                    break;
+                case "relative_humidity_2m":
+                    humidity = parser.getValueAsInt();
+                    break;
+                case "apparent_temperature":
+                    apparentTemperature = parser.getValueAsDouble();
+                    break;
+                case "is_day":
+                    isDay = parser.getValueAsInt();
+                    break;
+                case "weather_code":
+                    weatherCode = parser.getValueAsInt();
+                    break;
+                case "surface_pressure":
+                    surfacePressure = parser.getValueAsDouble();
+                    break;
+                case "wind_speed_10m":
+                    windSpeed = parser.getValueAsDouble();
+                    break;
+                case "wind_direction_10m":
+                    windDirection = parser.getValueAsInt();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new ComprehensiveWeatherReport.CurrentWeather(time, temperature, humidity, apparentTemperature,
+                isDay, weatherCode, surfacePressure, windSpeed, windDirection);
+    }
+
+    private ComprehensiveWeatherReport.HourlyData readHourly(JsonParser parser) throws IOException {
+        TimeAxis time = null;
+        float[] temperature2m = null;
+        byte[] weatherCode = null;
+        byte[] precipitationProbability = null;
+        float[] windSpeed10m = null;
+        float[] uvIndex = null;
+        float[] visibility = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "time":
+                    time = TimeAxis.parse(readStrings(parser));
+                    break;
+                case "temperature_2m":
+                    temperature2m = readFloats(parser);
+                    break;
+                case "weather_code":
+                    weatherCode = readBytes(parser);
+                    break;
+                case "precipitation_probability":
+                    precipitationProbability = readBytes(parser);
+                    break;
+                case "wind_speed_10m":
+                    windSpeed10m = readFloats(parser);
+                    break;
+                case "uv_index":
+                    uvIndex = readFloats(parser);
+                    break;
+                case "visibility":
+                    visibility = readFloats(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new ComprehensiveWeatherReport.HourlyData(time, temperature2m, weatherCode,
+                precipitationProbability, windSpeed10m, uvIndex, visibility);
+    }
+
+    private ComprehensiveWeatherReport.DailyData readDaily(JsonParser parser) throws IOException {
+        TimeAxis time = null;
+        byte[] weatherCode = null;
+        double[] temperatureMax = null;
+        double[] temperatureMin = null;
+        double[] apparentTemperatureMax = null;
+        double[] apparentTemperatureMin = null;
+        double[] uvIndexMax = null;
+        byte[] precipitationProbabilityMax = null;
+        double[] precipitationSum = null;
+        double[] precipitationHours = null;
+        double[] windSpeed10mMax = null;
+        String field;
+        while ((field = parser.nextFieldName()) != null) {
+            parser.nextToken();
+            switch (field) {
+                case "time":
+                    time = TimeAxis.parse(readStrings(parser));
+                    break;
+                case "weather_code":
+                    weatherCode = readBytes(parser);
+                    break;
+                case "temperature_2m_max":
+                    temperatureMax = readDoubles(parser);
+                    break;
+                case "temperature_2m_min":
+                    temperatureMin = readDoubles(parser);
+                    break;
+                case "apparent_temperature_max":
+                    apparentTemperatureMax = readDoubles(parser);
+                    break;
+                case "apparent_temperature_min":
+                    apparentTemperatureMin = readDoubles(parser);
+                    break;
+                case "uv_index_max":
+                    uvIndexMax = readDoubles(parser);
+                    break;
+                case "precipitation_probability_max":
+                    precipitationProbabilityMax = readBytes(parser);
+                    break;
+                case "precipitation_sum":
+                    precipitationSum = readDoubles(parser);
+                    break;
+                case "precipitation_hours":
+                    precipitationHours = readDoubles(parser);
+                    break;
+                case "wind_speed_10m_max":
+                    windSpeed10mMax = readDoubles(parser);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        return new ComprehensiveWeatherReport.DailyData(time, weatherCode, temperatureMax, temperatureMin,
+                apparentTemperatureMax, apparentTemperatureMin, uvIndexMax, precipitationProbabilityMax,
+                precipitationSum, precipitationHours, windSpeed10mMax);
+    }
+
+    /**
+     * Đọc mảng số vào double[]; null được lưu là NaN.
+     */
+    private static double[] readDoubles(JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return new double[0];
+        }
+        double[] values = new double[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = token == JsonToken.VALUE_NULL ? Double.NaN : parser.getValueAsDouble(Double.NaN);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Đọc mảng số vào float[] (chuỗi hourly chỉ dùng để hiển thị); null được lưu là NaN.
+     */
+    private static float[] readFloats(JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return new float[0];
+        }
+        float[] values = new float[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = token == JsonToken.VALUE_NULL ? Float.NaN : (float) parser.getValueAsDouble(Double.NaN);
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    /**
+     * Đọc mảng mã thời tiết WMO (0..99) hoặc xác suất (0..100) vào byte[]; null hoặc giá trị
+     * nằm ngoài 0..127 được lưu là {@link ComprehensiveWeatherReport#MISSING_BYTE}.
+     */
+    private static byte[] readBytes(JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return new byte[0];
+        }
+        byte[] values = new byte[INITIAL_CAPACITY];
+        int size = 0;
+        JsonToken token;
+        while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int value = token == JsonToken.VALUE_NULL ? -1 : parser.getValueAsInt(-1);
+            values[size++] = value >= 0 && value <= Byte.MAX_VALUE
+                    ? (byte) value
+                    : ComprehensiveWeatherReport.MISSING_BYTE;
+        }
+        return size == values.length ? values : Arrays.copyOf(values, size);
+    }
+
+    private static String[] readStrings(JsonParser parser) throws IOException {
+        if (!isArray(parser)) {
+            return new String[0];
+        }
+        List<String> values = new ArrayList<>(INITIAL_CAPACITY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            values.add(parser.getValueAsString());
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * True nếu token hiện tại là đầu mảng; giá trị khác (null, object...) được bỏ qua.
+     */
+    private static boolean isArray(JsonParser parser) throws IOException {
+        if (parser.currentToken() == JsonToken.START_ARRAY) {
+            return true;
+        }
+        parser.skipChildren();
+        return false;
+    }
+
+    private static void expect(JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException("Unexpected JSON token " + actual + ", expected " + expected);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.weather.forecast.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.weather.forecast.ai.DailyForecastModelGroup;
 import com.weather.forecast.ai.ForecastModel; // Added
 import org.springframework.beans.factory.annotation.Qualifier; // Added
 import org.springframework.beans.factory.annotation.Value; // Added
@@ -56,25 +57,37 @@ public class AppConfig implements WebMvcConfigurer {
 
     @Bean
     @Qualifier("dailyMaxTempForecastModel")
-    public ForecastModel dailyMaxTempForecastModel(@Value("${models.daily.max_temp.path}") String modelPath) {
-        return new ForecastModel(modelPath);
+    public ForecastModel dailyMaxTempForecastModel(@Value("${models.daily.max_temp.path}") String modelPath,
+            @Value("${models.daily.max_temp.engine:${models.engine:xgboost}}") String engine) {
+        return new ForecastModel(modelPath, engine);
     }
 
     @Bean
     @Qualifier("dailyMinTempForecastModel")
-    public ForecastModel dailyMinTempForecastModel(@Value("${models.daily.min_temp.path}") String modelPath) {
-        return new ForecastModel(modelPath);
+    public ForecastModel dailyMinTempForecastModel(@Value("${models.daily.min_temp.path}") String modelPath,
+            @Value("${models.daily.min_temp.engine:${models.engine:xgboost}}") String engine) {
+        return new ForecastModel(modelPath, engine);
     }
 
     @Bean
     @Qualifier("dailyRainProbForecastModel")
-    public ForecastModel dailyRainProbForecastModel(@Value("${models.daily.rain_prob.path}") String modelPath) {
-        return new ForecastModel(modelPath);
+    public ForecastModel dailyRainProbForecastModel(@Value("${models.daily.rain_prob.path}") String modelPath,
+            @Value("${models.daily.rain_prob.engine:${models.engine:xgboost}}") String engine) {
+        return new ForecastModel(modelPath, engine);
+    }
+
+    @Bean
+    public DailyForecastModelGroup dailyForecastModelGroup(
+            @Qualifier("dailyMaxTempForecastModel") ForecastModel maxTempModel,
+            @Qualifier("dailyMinTempForecastModel") ForecastModel minTempModel,
+            @Qualifier("dailyRainProbForecastModel") ForecastModel rainProbModel) {
+        return new DailyForecastModelGroup(maxTempModel, minTempModel, rainProbModel);
     }
 
     @Bean
     @Qualifier("hourlyForecastModel")
-    public ForecastModel hourlyForecastModel(@Value("${models.hourly.path}") String modelPath) {
-        return new ForecastModel(modelPath);
+    public ForecastModel hourlyForecastModel(@Value("${models.hourly.path}") String modelPath,
+            @Value("${models.hourly.engine:${models.engine:xgboost}}") String engine) {
+        return new ForecastModel(modelPath, engine);
     }
 }
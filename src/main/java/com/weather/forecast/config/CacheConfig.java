@@ -1,38 +1,202 @@
 package com.weather.forecast.config;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import com.weather.forecast.service.WeatherReportLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.CacheManager;
-import org.springframework.cache.annotation.CacheEvict;
-import org.springframework.cache.concurrent.ConcurrentMapCache;
+import org.springframework.cache.caffeine.CaffeineCache;
 import org.springframework.cache.support.SimpleCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Cấu hình cache cho ứng dụng.
- * Cache thời tiết sẽ tự động xoá sau 5 phút để đảm bảo dữ liệu luôn mới.
+ * Cấu hình cache cho ứng dụng (Caffeine).
+ * Mỗi cache có TTL và kích thước tối đa riêng (cấu hình trong
+ * application.properties), entry hết hạn độc lập theo thời điểm được ghi
+ * thay vì xoá toàn bộ cache cùng lúc. TTL được cộng thêm một khoảng jitter
+ * ngẫu nhiên để các entry ghi cùng lúc không hết hạn cùng lúc.
+ * <p>
+ * Cache "weatherReports" chạy ở chế độ refresh-ahead (stale-while-revalidate):
+ * entry quá soft TTL vẫn được trả về ngay, đồng thời một task nền (duy nhất cho
+ * mỗi key) tải lại dữ liệu. Entry chỉ bị xoá khi quá hard TTL, tức là mọi lần
+ * refresh trong khoảng đó đều thất bại (hoặc không ai truy cập). Lần tải đầu
+ * lỗi thì report rỗng được cache trong failure-ttl-seconds để không gọi lại API
+ * ngay ở mỗi request.
  */
 @Configuration
 public class CacheConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
+
+    @Value("${cache.ttl-jitter-percent:10}")
+    private int ttlJitterPercent;
+
     @Bean
-    public CacheManager cacheManager() {
+    public CacheManager cacheManager(WeatherReportLoader weatherReportLoader,
+            @Qualifier("cacheRefreshExecutor") Executor cacheRefreshExecutor,
+            @Value("${cache.weather-reports.refresh-ahead:true}") boolean weatherReportsRefreshAhead,
+            @Value("${cache.weather-reports.refresh-after-seconds:600}") long weatherReportsRefreshAfter,
+            @Value("${cache.weather-reports.ttl-seconds:3600}") long weatherReportsTtl,
+            @Value("${cache.weather-reports.max-size:500}") long weatherReportsMaxSize,
+            @Value("${cache.weather-reports.failure-ttl-seconds:30}") long weatherReportsFailureTtl,
+            @Value("${cache.prominent-provinces.ttl-seconds:300}") long prominentProvincesTtl,
+            @Value("${cache.prominent-provinces.max-size:20}") long prominentProvincesMaxSize,
+            @Value("${cache.hourly-forecasts.ttl-seconds:3600}") long hourlyForecastsTtl,
+            @Value("${cache.hourly-forecasts.max-size:500}") long hourlyForecastsMaxSize,
+            @Value("${cache.province-stats.ttl-seconds:60}") long provinceStatsTtl,
+            @Value("${cache.province-stats.max-size:20}") long provinceStatsMaxSize) {
+        CaffeineCache weatherReportsCache = weatherReportsRefreshAhead
+                ? buildRefreshAheadCache("weatherReports", weatherReportsRefreshAfter, weatherReportsTtl,
+                        weatherReportsFailureTtl, weatherReportsMaxSize, cacheRefreshExecutor, weatherReportLoader)
+                : buildCache("weatherReports", weatherReportsRefreshAfter, weatherReportsMaxSize);
+
         SimpleCacheManager cacheManager = new SimpleCacheManager();
         cacheManager.setCaches(List.of(
-                new ConcurrentMapCache("weatherReports"),
-                new ConcurrentMapCache("coordinates"),
-                new ConcurrentMapCache("prominentProvincesWeather")));
+                weatherReportsCache,
+                buildCache("prominentProvincesWeather", prominentProvincesTtl, prominentProvincesMaxSize),
+                buildCache("hourlyForecasts", hourlyForecastsTtl, hourlyForecastsMaxSize),
+                buildCache("provinceStats", provinceStatsTtl, provinceStatsMaxSize)));
         return cacheManager;
     }
 
     /**
-     * Tự động xoá cache mỗi 5 phút để cập nhật dữ liệu thời tiết mới.
+     * Thread pool riêng cho việc refresh nền các entry cache.
+     */
+    @Bean
+    @Qualifier("cacheRefreshExecutor")
+    public ThreadPoolTaskExecutor cacheRefreshExecutor(
+            @Value("${cache.refresh.pool-size:4}") int poolSize,
+            @Value("${cache.refresh.queue-capacity:200}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("cache-refresh-");
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Tạo cache Caffeine (W-TinyLFU) có giới hạn kích thước, TTL theo từng
+     * entry và ghi nhận thống kê hit/miss/eviction.
+     */
+    private CaffeineCache buildCache(String name, long ttlSeconds, long maxSize) {
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new JitteredExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds), ttlJitterPercent))
+                .recordStats()
+                .build());
+    }
+
+    /**
+     * Tạo cache refresh-ahead cho báo cáo thời tiết. Lần load đầu tiên lỗi sẽ
+     * trả về report rỗng (được cache trong {@code failureTtlSeconds}, không trả
+     * null vì Spring coi null là miss và gọi method @Cacheable tải lại lần nữa);
+     * refresh nền lỗi sẽ ném exception để Caffeine giữ nguyên giá trị cũ.
+     */
+    private CaffeineCache buildRefreshAheadCache(String name, long refreshAfterSeconds, long ttlSeconds,
+            long failureTtlSeconds, long maxSize, Executor executor, WeatherReportLoader weatherReportLoader) {
+        CacheLoader<Object, Object> loader = new CacheLoader<>() {
+            @Override
+            public Object load(Object key) {
+                try {
+                    return weatherReportLoader.loadReport((String) key);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return new ComprehensiveWeatherReport();
+                } catch (Exception e) {
+                    logger.warn("Không thể tải weather report cho {}: {}", key, e.getMessage());
+                    return new ComprehensiveWeatherReport();
+                }
+            }
+
+            @Override
+            public Object reload(Object key, Object oldValue) throws Exception {
+                try {
+                    return weatherReportLoader.loadReport((String) key);
+                } catch (Exception e) {
+                    logger.warn("Refresh weather report cho {} thất bại, giữ dữ liệu cũ: {}", key, e.getMessage());
+                    throw e;
+                }
+            }
+        };
+
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(Duration.ofSeconds(refreshAfterSeconds))
+                .expireAfter(new ReportExpiry(TimeUnit.SECONDS.toNanos(ttlSeconds),
+                        TimeUnit.SECONDS.toNanos(failureTtlSeconds), ttlJitterPercent))
+                .executor(executor)
+                .recordStats()
+                .build(loader));
+    }
+
+    /**
+     * TTL tính từ lúc ghi (create/update), cộng thêm jitter ngẫu nhiên
+     * 0..jitterPercent% của TTL. Đọc không làm thay đổi thời hạn.
      */
-    @CacheEvict(value = { "weatherReports", "coordinates", "prominentProvincesWeather" }, allEntries = true)
-    @Scheduled(fixedRate = 300000) // 5 phút = 300,000 ms
-    public void evictAllCaches() {
-        System.out.println("♻️ Cache cleared - Weather data will be refreshed");
+    static class JitteredExpiry implements Expiry<Object, Object> {
+
+        private final long ttlNanos;
+        private final long maxJitterNanos;
+
+        JitteredExpiry(long ttlNanos, int jitterPercent) {
+            this.ttlNanos = ttlNanos;
+            this.maxJitterNanos = ttlNanos * Math.max(0, jitterPercent) / 100;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            if (maxJitterNanos <= 0) {
+                return ttlNanos;
+            }
+            return ttlNanos + ThreadLocalRandom.current().nextLong(maxJitterNanos + 1);
+        }
+
+        @Override
+        public long expireAfterUpdate(Object key, Object value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(Object key, Object value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    /**
+     * Như {@link JitteredExpiry}, nhưng report rỗng (tải lỗi) chỉ được giữ trong
+     * failure TTL để lần tải lại tiếp theo không phải chờ hết hard TTL.
+     */
+    static class ReportExpiry extends JitteredExpiry {
+
+        private final long failureTtlNanos;
+
+        ReportExpiry(long ttlNanos, long failureTtlNanos, int jitterPercent) {
+            super(ttlNanos, jitterPercent);
+            this.failureTtlNanos = failureTtlNanos;
+        }
+
+        @Override
+        public long expireAfterCreate(Object key, Object value, long currentTime) {
+            if (value instanceof ComprehensiveWeatherReport
+                    && !((ComprehensiveWeatherReport) value).hasDailyData()) {
+                return failureTtlNanos;
+            }
+            return super.expireAfterCreate(key, value, currentTime);
+        }
     }
 }
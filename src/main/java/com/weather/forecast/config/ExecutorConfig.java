@@ -0,0 +1,74 @@
+package com.weather.forecast.config;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Các thread pool dùng riêng cho những tác vụ chạy song song trong ứng dụng.
+ * Mỗi pool có giới hạn số thread và hàng đợi để không làm cạn tài nguyên.
+ */
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Pool cho việc lấy thời tiết nhiều tỉnh song song (widget tỉnh nổi bật).
+     * Khi hàng đợi đầy, task chạy trên thread của caller (backpressure).
+     */
+    @Bean
+    @Qualifier("weatherFanOutExecutor")
+    public ThreadPoolTaskExecutor weatherFanOutExecutor(
+            @Value("${weather.fan-out.parallelism:8}") int parallelism,
+            @Value("${weather.fan-out.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("weather-fan-out-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool worker cho việc thu thập dữ liệu 63 tỉnh/thành (lịch sử và hôm nay).
+     * Tốc độ gọi API thực tế do rate limiter trong ProvinceCollectionEngine quyết định.
+     */
+    @Bean
+    @Qualifier("dataCollectionExecutor")
+    public ThreadPoolTaskExecutor dataCollectionExecutor(
+            @Value("${data-collection.parallelism:4}") int parallelism,
+            @Value("${data-collection.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(parallelism);
+        executor.setMaxPoolSize(parallelism);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("data-collection-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Pool ghi prediction_results từ request (dự báo tính tại chỗ khi read model chưa có).
+     * Khi hàng đợi đầy, task bị từ chối để request không phải chờ database.
+     */
+    @Bean
+    @Qualifier("predictionWriteExecutor")
+    public ThreadPoolTaskExecutor predictionWriteExecutor(
+            @Value("${prediction-write.pool-size:1}") int poolSize,
+            @Value("${prediction-write.queue-capacity:100}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("prediction-write-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
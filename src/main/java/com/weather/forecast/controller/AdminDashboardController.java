@@ -4,9 +4,12 @@ import com.weather.forecast.model.WeatherAlert;
 import com.weather.forecast.repository.WeatherAlertRepository;
 import com.weather.forecast.repository.WeatherHistoryRepository;
 import com.weather.forecast.service.AdminService;
+import com.weather.forecast.service.ModelRegistryService;
 import com.weather.forecast.service.ScheduledTasks;
+import com.weather.forecast.service.WeatherRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -28,6 +31,8 @@ public class AdminDashboardController {
     private final ScheduledTasks scheduledTasks;
     private final WeatherAlertRepository weatherAlertRepository;
     private final WeatherHistoryRepository weatherHistoryRepository;
+    private final ModelRegistryService modelRegistryService;
+    private final WeatherRollupService weatherRollupService;
 
     @Value("${admin.secret.key}")
     private String adminSecretKey;
@@ -36,11 +41,15 @@ public class AdminDashboardController {
     public AdminDashboardController(AdminService adminService,
             ScheduledTasks scheduledTasks,
             WeatherAlertRepository weatherAlertRepository,
-            WeatherHistoryRepository weatherHistoryRepository) {
+            WeatherHistoryRepository weatherHistoryRepository,
+            ModelRegistryService modelRegistryService,
+            WeatherRollupService weatherRollupService) {
         this.adminService = adminService;
         this.scheduledTasks = scheduledTasks;
         this.weatherAlertRepository = weatherAlertRepository;
         this.weatherHistoryRepository = weatherHistoryRepository;
+        this.modelRegistryService = modelRegistryService;
+        this.weatherRollupService = weatherRollupService;
     }
 
     /**
@@ -75,6 +84,8 @@ public class AdminDashboardController {
         // System Status
         Map<String, Object> systemStatus = adminService.getSystemStatus();
         model.addAttribute("systemStatus", systemStatus);
+        model.addAttribute("cacheStats", adminService.getCacheStats());
+        model.addAttribute("modelVersions", modelRegistryService.getModelVersions());
 
         // Scheduler Info
         model.addAttribute("lastCollectionTime", scheduledTasks.getLastDataCollectionTime());
@@ -223,4 +234,54 @@ public class AdminDashboardController {
 
         return "redirect:/admin/dashboard?token=" + token;
     }
+
+    // ==================== ROLLUPS ====================
+
+    /**
+     * Tính lại bảng rollup từ weather_history: toàn bộ, hoặc chỉ các kỳ từ ngày
+     * {@code since} trở đi nếu có.
+     */
+    @PostMapping("/rollups/rebuild")
+    public String rebuildRollups(@RequestParam(name = "token") String token,
+            @RequestParam(name = "since", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate since,
+            RedirectAttributes redirectAttributes) {
+        if (!isValidToken(token)) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Token không hợp lệ!");
+            return "redirect:/admin/dashboard";
+        }
+
+        try {
+            int rows = since != null ? weatherRollupService.refreshSince(since) : weatherRollupService.rebuildAll();
+            redirectAttributes.addFlashAttribute("successMessage", "✓ Đã tính lại " + rows + " kỳ thống kê");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "❌ Lỗi: " + e.getMessage());
+        }
+
+        return "redirect:/admin/dashboard?token=" + token;
+    }
+
+    // ==================== MODEL REGISTRY ====================
+
+    /**
+     * Rollback model về version có RMSE thấp nhất.
+     */
+    @PostMapping("/models/{name}/rollback")
+    public String rollbackModel(@PathVariable String name,
+            @RequestParam(name = "token") String token,
+            RedirectAttributes redirectAttributes) {
+        if (!isValidToken(token)) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Token không hợp lệ!");
+            return "redirect:/admin/dashboard";
+        }
+
+        try {
+            String version = modelRegistryService.rollbackToBestVersion(name);
+            redirectAttributes.addFlashAttribute("successMessage",
+                    "✓ Đã rollback " + name + " về version " + version);
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "❌ Lỗi: " + e.getMessage());
+        }
+
+        return "redirect:/admin/dashboard?token=" + token;
+    }
 }
@@ -1,19 +1,25 @@
 package com.weather.forecast.controller;
 
 import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.model.dto.CollectionJob;
 import com.weather.forecast.repository.WeatherHistoryRepository;
 import com.weather.forecast.service.DataUpdateService;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controller để quản lý việc cập nhật dữ liệu thời tiết lịch sử.
@@ -60,6 +66,7 @@ public class DataUpdateController {
         model.addAttribute("totalRecords", totalRecords);
         model.addAttribute("provinces", provinces);
         model.addAttribute("savedProvinces", savedProvinces);
+        model.addAttribute("collectionJob", dataUpdateService.getCurrentCollection());
 
         return "update-data";
     }
@@ -72,6 +79,7 @@ public class DataUpdateController {
     public String triggerHistoricalUpdate(
             @RequestParam(name = "type", defaultValue = "historical") String type,
             @RequestParam(name = "token", required = false) String token,
+            @RequestParam(name = "fromDate", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fromDate,
             RedirectAttributes redirectAttributes) {
 
         // Kiểm tra token xác thực - nếu sai thì vào trang trắng
@@ -81,24 +89,33 @@ public class DataUpdateController {
 
         System.out.println("=== Data Update Request: " + type + " ===");
 
+        // Chạy nền trên worker pool, trang admin hiển thị tiến độ từng tỉnh
         try {
             if ("today".equals(type)) {
                 // Thu thập chỉ ngày hôm nay
-                int successCount = dataUpdateService.collectAllProvincesTodayData();
-                long totalRecords = dataUpdateService.getTotalRecords();
-
+                dataUpdateService.startTodayCollection();
                 redirectAttributes.addFlashAttribute("successMessage",
-                        "✓ Thu thập thành công dữ liệu NGÀY HÔM NAY cho " + successCount + " tỉnh/thành. " +
-                                "Tổng số bản ghi: " + totalRecords);
+                        "✓ Đã bắt đầu thu thập dữ liệu NGÀY HÔM NAY cho 63 tỉnh/thành. " +
+                                "Tiến độ được cập nhật bên dưới.");
+            } else if ("backfill".equals(type)) {
+                // Mở rộng dữ liệu lịch sử về quá khứ
+                if (fromDate == null || !fromDate.isBefore(LocalDate.now())) {
+                    redirectAttributes.addFlashAttribute("errorMessage", "❌ Ngày bắt đầu backfill không hợp lệ");
+                } else {
+                    dataUpdateService.startHistoricalBackfill(fromDate);
+                    redirectAttributes.addFlashAttribute("successMessage",
+                            "✓ Đã bắt đầu mở rộng dữ liệu lịch sử về ngày " + fromDate + ". " +
+                                    "Tiến độ được cập nhật bên dưới.");
+                }
             } else {
                 // Thu thập 30 ngày lịch sử
-                int savedRecords = dataUpdateService.collectAllProvincesHistoricalData();
-                long totalRecords = dataUpdateService.getTotalRecords();
-
+                dataUpdateService.startHistoricalCollection();
                 redirectAttributes.addFlashAttribute("successMessage",
-                        "✓ Thu thập thành công " + savedRecords + " bản ghi LỊCH SỬ 30 NGÀY. " +
-                                "Tổng số bản ghi trong database: " + totalRecords);
+                        "✓ Đã bắt đầu thu thập dữ liệu LỊCH SỬ 30 NGÀY cho 63 tỉnh/thành. " +
+                                "Tiến độ được cập nhật bên dưới.");
             }
+        } catch (IllegalStateException e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "❌ " + e.getMessage());
         } catch (Exception e) {
             System.err.println("Error during data collection: " + e.getMessage());
             e.printStackTrace();
@@ -109,4 +126,19 @@ public class DataUpdateController {
         // Redirect với token để giữ phiên đăng nhập
         return "redirect:/admin/data-update?token=" + token;
     }
-}
\ No newline at end of file
+
+    /**
+     * Tiến độ lượt thu thập hiện tại (JSON), dùng để trang admin tự cập nhật.
+     */
+    @GetMapping("/data-update/progress")
+    @ResponseBody
+    public Map<String, Object> getCollectionProgress(@RequestParam(name = "token", required = false) String token) {
+        Map<String, Object> response = new HashMap<>();
+        if (token == null || !token.equals(adminSecretKey)) {
+            return response;
+        }
+        CollectionJob job = dataUpdateService.getCurrentCollection();
+        response.put("job", job);
+        return response;
+    }
+}
@@ -318,12 +318,7 @@ public class WeatherController {
             Model model) {
         logger.info("Fetching hourly details for city: {} on date: {}", city, date);
 
-        ComprehensiveWeatherReport comprehensiveReport = weatherService.getWeatherReport(city);
-        List<HourlyForecast> hourlyForecastForDay = new ArrayList<>();
-
-        if (comprehensiveReport != null && comprehensiveReport.getHourly() != null) {
-            hourlyForecastForDay = filterHourlyForecastByDate(comprehensiveReport.getHourly(), date);
-        }
+        List<HourlyForecast> hourlyForecastForDay = weatherService.getHourlyForecast(city, date);
 
         model.addAttribute("city", city);
         model.addAttribute("date", date);
@@ -332,42 +327,6 @@ public class WeatherController {
         return "daily_hourly_detail";
     }
 
-    private List<HourlyForecast> filterHourlyForecastByDate(ComprehensiveWeatherReport.HourlyData fullHourlyData,
-            LocalDate targetDate) {
-        List<HourlyForecast> filteredForecasts = new ArrayList<>();
-
-        if (fullHourlyData == null || fullHourlyData.getTime() == null || fullHourlyData.getTime().isEmpty()) {
-            return filteredForecasts;
-        }
-
-        for (int i = 0; i < fullHourlyData.getTime().size(); i++) {
-            String timestampString = fullHourlyData.getTime().get(i);
-            java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter
-                    .ofPattern("yyyy-MM-dd'T'HH:mm");
-            java.time.LocalDateTime localDateTime = java.time.LocalDateTime.parse(timestampString, formatter);
-            LocalDate entryDate = localDateTime.toLocalDate();
-
-            if (entryDate.isEqual(targetDate)) {
-                if (i < fullHourlyData.getTemperature2m().size() &&
-                        i < fullHourlyData.getWeatherCode().size() &&
-                        i < fullHourlyData.getPrecipitationProbability().size() &&
-                        i < fullHourlyData.getWindSpeed10m().size()) {
-
-                    HourlyForecast hourlyForecast = new HourlyForecast();
-                    hourlyForecast.setTime(localDateTime.toLocalTime());
-                    hourlyForecast.setTemperature(fullHourlyData.getTemperature2m().get(i));
-                    hourlyForecast.setWeatherCode(fullHourlyData.getWeatherCode().get(i));
-                    hourlyForecast.setPrecipitationProbability(fullHourlyData.getPrecipitationProbability().get(i));
-                    hourlyForecast.setWindSpeed(fullHourlyData.getWindSpeed10m().get(i));
-                    filteredForecasts.add(hourlyForecast);
-                } else {
-                    logger.warn("Inconsistent hourly data at index {}", i);
-                }
-            }
-        }
-        return filteredForecasts;
-    }
-
     private Map<String, List<String>> initGroupedCities() {
         Map<String, List<String>> cities = new LinkedHashMap<>();
         cities.put("Đông Bắc Bộ", List.of("Hà Giang", "Cao Bằng", "Bắc Kạn", "Lạng Sơn", "Tuyên Quang", "Thái Nguyên",
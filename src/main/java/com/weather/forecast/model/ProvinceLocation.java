@@ -0,0 +1,120 @@
+package com.weather.forecast.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entity cho bảng province_locations - lưu tọa độ đã geocode của các tỉnh/thành.
+ * Tọa độ các tỉnh không thay đổi nên chỉ cần gọi Geocoding API một lần rồi lưu
+ * lại, tra cứu theo lookup key đã chuẩn hoá (không dấu, chữ thường).
+ */
+@Entity
+@Table(name = "province_locations", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "lookup_key" })
+})
+public class ProvinceLocation {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "lookup_key", nullable = false, length = 100)
+    private String lookupKey;
+
+    @Column(nullable = false, length = 100)
+    private String name;
+
+    @Column(nullable = false)
+    private Double latitude;
+
+    @Column(nullable = false)
+    private Double longitude;
+
+    @Column(name = "resolved_name", length = 200)
+    private String resolvedName; // Tên trả về từ Geocoding API
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // === Constructors ===
+
+    public ProvinceLocation() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public ProvinceLocation(String lookupKey, String name, Double latitude, Double longitude) {
+        this();
+        this.lookupKey = lookupKey;
+        this.name = name;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    // === Getters and Setters ===
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getLookupKey() {
+        return lookupKey;
+    }
+
+    public void setLookupKey(String lookupKey) {
+        this.lookupKey = lookupKey;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Double getLatitude() {
+        return latitude;
+    }
+
+    public void setLatitude(Double latitude) {
+        this.latitude = latitude;
+    }
+
+    public Double getLongitude() {
+        return longitude;
+    }
+
+    public void setLongitude(Double longitude) {
+        this.longitude = longitude;
+    }
+
+    public String getResolvedName() {
+        return resolvedName;
+    }
+
+    public void setResolvedName(String resolvedName) {
+        this.resolvedName = resolvedName;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "ProvinceLocation{" +
+                "lookupKey='" + lookupKey + '\'' +
+                ", name='" + name + '\'' +
+                ", latitude=" + latitude +
+                ", longitude=" + longitude +
+                '}';
+    }
+}
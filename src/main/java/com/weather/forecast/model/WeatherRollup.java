@@ -0,0 +1,187 @@
+package com.weather.forecast.model;
+
+import javax.persistence.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+
+/**
+ * Entity cho bảng weather_rollups - số liệu tổng hợp của weather_history theo
+ * tỉnh và theo ngày/tuần/tháng, để Dashboard đọc O(số kỳ) dòng thay vì O(số bản ghi).
+ * Bảng được ghi bằng JDBC (WeatherRollupJdbcRepository): cộng dồn khi thu thập
+ * dữ liệu và tính lại từ weather_history khi rebuild.
+ * Nhiệt độ trung bình lưu dưới dạng tổng + số giá trị để cộng dồn được.
+ */
+@Entity
+@Table(name = "weather_rollups", uniqueConstraints = {
+        @UniqueConstraint(columnNames = { "province", "period_type", "period_start" })
+})
+public class WeatherRollup {
+
+    /**
+     * Loại kỳ tổng hợp. Tuần bắt đầu từ thứ Hai (giống date_trunc('week') của PostgreSQL).
+     */
+    public enum Period {
+        DAY("record_date"),
+        WEEK("CAST(date_trunc('week', record_date) AS date)"),
+        MONTH("CAST(date_trunc('month', record_date) AS date)");
+
+        private final String startExpression;
+
+        Period(String startExpression) {
+            this.startExpression = startExpression;
+        }
+
+        /**
+         * Ngày bắt đầu của kỳ chứa {@code date}.
+         */
+        public LocalDate start(LocalDate date) {
+            switch (this) {
+                case WEEK:
+                    return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+                case MONTH:
+                    return date.withDayOfMonth(1);
+                default:
+                    return date;
+            }
+        }
+
+        /**
+         * Biểu thức SQL tính ngày bắt đầu kỳ từ cột record_date (dùng khi rebuild).
+         */
+        public String getStartExpression() {
+            return startExpression;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 100)
+    private String province;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "period_type", nullable = false, length = 10)
+    private Period periodType;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Column(name = "record_count", nullable = false)
+    private long recordCount;
+
+    // Ngày mới nhất có dữ liệu trong kỳ
+    @Column(name = "last_record_date")
+    private LocalDate lastRecordDate;
+
+    // === Nhiệt độ ===
+
+    @Column(name = "max_temp")
+    private Double maxTemp;
+
+    @Column(name = "min_temp")
+    private Double minTemp;
+
+    @Column(name = "temp_max_sum", nullable = false)
+    private double tempMaxSum;
+
+    @Column(name = "temp_max_count", nullable = false)
+    private long tempMaxCount;
+
+    @Column(name = "temp_min_sum", nullable = false)
+    private double tempMinSum;
+
+    @Column(name = "temp_min_count", nullable = false)
+    private long tempMinCount;
+
+    // === Lượng mưa ===
+
+    @Column(name = "precipitation_sum", nullable = false)
+    private double precipitationSum;
+
+    @Column(name = "precipitation_count", nullable = false)
+    private long precipitationCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    // === Giá trị dẫn xuất ===
+
+    /**
+     * Trung bình nhiệt độ cao nhất các ngày trong kỳ, null nếu không có giá trị.
+     */
+    public Double getAvgMaxTemp() {
+        return tempMaxCount > 0 ? tempMaxSum / tempMaxCount : null;
+    }
+
+    /**
+     * Trung bình nhiệt độ thấp nhất các ngày trong kỳ, null nếu không có giá trị.
+     */
+    public Double getAvgMinTemp() {
+        return tempMinCount > 0 ? tempMinSum / tempMinCount : null;
+    }
+
+    // === Getters ===
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public Period getPeriodType() {
+        return periodType;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public LocalDate getLastRecordDate() {
+        return lastRecordDate;
+    }
+
+    public Double getMaxTemp() {
+        return maxTemp;
+    }
+
+    public Double getMinTemp() {
+        return minTemp;
+    }
+
+    public double getTempMaxSum() {
+        return tempMaxSum;
+    }
+
+    public long getTempMaxCount() {
+        return tempMaxCount;
+    }
+
+    public double getTempMinSum() {
+        return tempMinSum;
+    }
+
+    public long getTempMinCount() {
+        return tempMinCount;
+    }
+
+    public double getPrecipitationSum() {
+        return precipitationSum;
+    }
+
+    public long getPrecipitationCount() {
+        return precipitationCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
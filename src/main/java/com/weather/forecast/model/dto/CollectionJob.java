@@ -0,0 +1,106 @@
+package com.weather.forecast.model.dto;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tiến độ và kết quả của một lượt thu thập dữ liệu cho nhiều tỉnh/thành.
+ * Được cập nhật đồng thời từ các worker thread nên chỉ dùng các cấu trúc thread-safe.
+ */
+public class CollectionJob {
+
+    public enum Status {
+        RUNNING, SUCCESS, FAILED
+    }
+
+    /**
+     * Kết quả thu thập của một tỉnh.
+     */
+    public static class ProvinceResult {
+        private final Status status;
+        private final int attempts;
+        private final int recordsSaved;
+        private final String message;
+
+        public ProvinceResult(Status status, int attempts, int recordsSaved, String message) {
+            this.status = status;
+            this.attempts = attempts;
+            this.recordsSaved = recordsSaved;
+            this.message = message;
+        }
+
+        public Status getStatus() { return status; }
+
+        public int getAttempts() { return attempts; }
+
+        public int getRecordsSaved() { return recordsSaved; }
+
+        public String getMessage() { return message; }
+    }
+
+    private final String type;
+    private final int total;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+    private volatile LocalDateTime finishedAt;
+
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger recordsSaved = new AtomicInteger();
+    private final Map<String, ProvinceResult> results = new ConcurrentHashMap<>();
+
+    public CollectionJob(String type, int total) {
+        this.type = type;
+        this.total = total;
+    }
+
+    public void markRunning(String province) {
+        results.put(province, new ProvinceResult(Status.RUNNING, 0, 0, null));
+    }
+
+    public void recordSuccess(String province, int attempts, int saved) {
+        results.put(province, new ProvinceResult(Status.SUCCESS, attempts, saved, null));
+        succeeded.incrementAndGet();
+        recordsSaved.addAndGet(saved);
+    }
+
+    public void recordFailure(String province, int attempts, String message) {
+        results.put(province, new ProvinceResult(Status.FAILED, attempts, 0, message));
+        failed.incrementAndGet();
+    }
+
+    public void markFinished() {
+        if (finishedAt == null) {
+            finishedAt = LocalDateTime.now();
+        }
+    }
+
+    public boolean isFinished() {
+        return finishedAt != null;
+    }
+
+    public int getCompleted() {
+        return succeeded.get() + failed.get();
+    }
+
+    public int getPercent() {
+        return total == 0 ? 100 : getCompleted() * 100 / total;
+    }
+
+    public String getType() { return type; }
+
+    public int getTotal() { return total; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+
+    public LocalDateTime getFinishedAt() { return finishedAt; }
+
+    public int getSucceeded() { return succeeded.get(); }
+
+    public int getFailed() { return failed.get(); }
+
+    public int getRecordsSaved() { return recordsSaved.get(); }
+
+    public Map<String, ProvinceResult> getResults() { return results; }
+}
@@ -1,135 +1,291 @@
 package com.weather.forecast.model.dto;
 
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.annotation.JsonProperty;
-import java.util.ArrayList;
+import com.weather.forecast.model.HourlyForecast;
+import com.weather.forecast.util.PrimitiveLists;
+
+import java.time.LocalDate;
+import java.util.AbstractList;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
- * A DTO for deserializing the comprehensive forecast response from Open-Meteo.
- * This class and its nested classes map directly to the JSON structure.
+ * A DTO for the comprehensive forecast response from Open-Meteo.
+ * Built once by the streaming parser of OpenMeteoAPI and never modified afterwards, so the
+ * same instance can be shared by the "weatherReports" cache and every request thread.
+ * Layout is compact columnar:
+ * - timestamps are a {@link TimeAxis} (start + step) instead of one String per hour/day
+ * - hourly series are {@code float[]}, daily series (written to weather_history) are {@code double[]}
+ * - weather codes and probabilities (0..100) are {@code byte[]}
+ * Missing values are NaN or {@link #MISSING_INT} through the indexed getters; the {@code List}
+ * getters are read-only views for the Thymeleaf templates (missing values are returned as null).
  */
-@JsonIgnoreProperties(ignoreUnknown = true)
-public class ComprehensiveWeatherReport {
-
-    @JsonProperty("latitude")
-    private double latitude;
-    @JsonProperty("longitude")
-    private double longitude;
-    @JsonProperty("timezone")
-    private String timezone;
-    @JsonProperty("current")
-    private CurrentWeather current = new CurrentWeather(); // Initialize to prevent null
-    @JsonProperty("hourly")
-    private HourlyData hourly = new HourlyData();       // Initialize to prevent null
-    @JsonProperty("daily")
-    private DailyData daily = new DailyData();          // Initialize to prevent null
-
-    //<editor-fold desc="Getters and Setters">
+public final class ComprehensiveWeatherReport {
+
+    /** Giá trị trả về của các getter int khi API trả về null. */
+    public static final int MISSING_INT = Integer.MIN_VALUE;
+
+    /** Giá trị lưu trong cột byte khi API trả về null. */
+    public static final byte MISSING_BYTE = -1;
+
+    private static final double[] NO_DOUBLES = new double[0];
+    private static final float[] NO_FLOATS = new float[0];
+    private static final byte[] NO_BYTES = new byte[0];
+
+    private final double latitude;
+    private final double longitude;
+    private final String timezone;
+    private final CurrentWeather current;
+    private final HourlyData hourly;
+    private final DailyData daily;
+
+    /**
+     * Report rỗng (khi gọi API lỗi).
+     */
+    public ComprehensiveWeatherReport() {
+        this(0.0, 0.0, null, null, null, null);
+    }
+
+    public ComprehensiveWeatherReport(double latitude, double longitude, String timezone,
+            CurrentWeather current, HourlyData hourly, DailyData daily) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.timezone = timezone;
+        this.current = current != null ? current : CurrentWeather.EMPTY; // Prevent null
+        this.hourly = hourly != null ? hourly : HourlyData.EMPTY;
+        this.daily = daily != null ? daily : DailyData.EMPTY;
+    }
+
+    //<editor-fold desc="Getters">
     public double getLatitude() { return latitude; }
-    public void setLatitude(double latitude) { this.latitude = latitude; }
     public double getLongitude() { return longitude; }
-    public void setLongitude(double longitude) { this.longitude = longitude; }
     public String getTimezone() { return timezone; }
-    public void setTimezone(String timezone) { this.timezone = timezone; }
     public CurrentWeather getCurrent() { return current; }
-    public void setCurrent(CurrentWeather current) { this.current = current; }
     public HourlyData getHourly() { return hourly; }
-    public void setHourly(HourlyData hourly) { this.hourly = hourly; }
     public DailyData getDaily() { return daily; }
-    public void setDaily(DailyData daily) { this.daily = daily; }
     //</editor-fold>
 
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    public static class CurrentWeather {
-        @JsonProperty("time") private String time = "";
-        @JsonProperty("temperature_2m") private double temperature = 0.0;
-        @JsonProperty("relative_humidity_2m") private int humidity = 0;
-        @JsonProperty("apparent_temperature") private double apparentTemperature = 0.0;
-        @JsonProperty("is_day") private int isDay = 0;
-        @JsonProperty("weather_code") private int weatherCode = 0;
-        @JsonProperty("surface_pressure") private double surfacePressure = 0.0;
-        @JsonProperty("wind_speed_10m") private double windSpeed = 0.0;
-        @JsonProperty("wind_direction_10m") private int windDirection = 0;
-
-        //<editor-fold desc="Getters and Setters">
+    /**
+     * Report is usable only if the daily section was populated by the API.
+     */
+    public boolean hasDailyData() {
+        return daily.size() > 0;
+    }
+
+    private static double at(double[] values, int index) {
+        return index < values.length ? values[index] : Double.NaN;
+    }
+
+    private static double at(float[] values, int index) {
+        return index < values.length ? values[index] : Double.NaN;
+    }
+
+    private static int at(byte[] values, int index) {
+        return index < values.length && values[index] != MISSING_BYTE ? values[index] : MISSING_INT;
+    }
+
+    private static int orZero(int value) {
+        return value == MISSING_INT ? 0 : value;
+    }
+
+    private static double[] orEmpty(double[] values) {
+        return values != null ? values : NO_DOUBLES;
+    }
+
+    private static float[] orEmpty(float[] values) {
+        return values != null ? values : NO_FLOATS;
+    }
+
+    private static byte[] orEmpty(byte[] values) {
+        return values != null ? values : NO_BYTES;
+    }
+
+    public static final class CurrentWeather {
+        static final CurrentWeather EMPTY = new CurrentWeather("", 0.0, 0, 0.0, 0, 0, 0.0, 0.0, 0);
+
+        private final String time;
+        private final double temperature;
+        private final int humidity;
+        private final double apparentTemperature;
+        private final int isDay;
+        private final int weatherCode;
+        private final double surfacePressure;
+        private final double windSpeed;
+        private final int windDirection;
+
+        public CurrentWeather(String time, double temperature, int humidity, double apparentTemperature,
+                int isDay, int weatherCode, double surfacePressure, double windSpeed, int windDirection) {
+            this.time = time;
+            this.temperature = temperature;
+            this.humidity = humidity;
+            this.apparentTemperature = apparentTemperature;
+            this.isDay = isDay;
+            this.weatherCode = weatherCode;
+            this.surfacePressure = surfacePressure;
+            this.windSpeed = windSpeed;
+            this.windDirection = windDirection;
+        }
+
+        //<editor-fold desc="Getters">
         public String getTime() { return time; }
-        public void setTime(String time) { this.time = time; }
         public double getTemperature() { return temperature; }
-        public void setTemperature(double temperature) { this.temperature = temperature; }
         public int getHumidity() { return humidity; }
-        public void setHumidity(int humidity) { this.humidity = humidity; }
         public double getApparentTemperature() { return apparentTemperature; }
-        public void setApparentTemperature(double apparentTemperature) { this.apparentTemperature = apparentTemperature; }
         public int getIsDay() { return isDay; }
-        public void setIsDay(int isDay) { this.isDay = isDay; }
         public int getWeatherCode() { return weatherCode; }
-        public void setWeatherCode(int weatherCode) { this.weatherCode = weatherCode; }
         public double getSurfacePressure() { return surfacePressure; }
-        public void setSurfacePressure(double surfacePressure) { this.surfacePressure = surfacePressure; }
         public double getWindSpeed() { return windSpeed; }
-        public void setWindSpeed(double windSpeed) { this.windSpeed = windSpeed; }
         public int getWindDirection() { return windDirection; }
-        public void setWindDirection(int windDirection) { this.windDirection = windDirection; }
         //</editor-fold>
     }
 
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    public static class HourlyData {
-        @JsonProperty("time") private List<String> time = new ArrayList<>();
-        @JsonProperty("temperature_2m") private List<Double> temperature2m = new ArrayList<>(); // Added
-        @JsonProperty("weather_code") private List<Integer> weatherCode = new ArrayList<>();    // Added
-        @JsonProperty("precipitation_probability") private List<Integer> precipitationProbability = new ArrayList<>(); // Added
-        @JsonProperty("wind_speed_10m") private List<Double> windSpeed10m = new ArrayList<>(); // Added
-        @JsonProperty("uv_index") private List<Double> uvIndex = new ArrayList<>();
-        @JsonProperty("visibility") private List<Double> visibility = new ArrayList<>();
-
-        //<editor-fold desc="Getters and Setters">
-        public List<String> getTime() { return time; }
-        public void setTime(List<String> time) { this.time = time; }
-        public List<Double> getTemperature2m() { return temperature2m; } // Added
-        public void setTemperature2m(List<Double> temperature2m) { this.temperature2m = temperature2m; } // Added
-        public List<Integer> getWeatherCode() { return weatherCode; } // Added
-        public void setWeatherCode(List<Integer> weatherCode) { this.weatherCode = weatherCode; } // Added
-        public List<Integer> getPrecipitationProbability() { return precipitationProbability; } // Added
-        public void setPrecipitationProbability(List<Integer> precipitationProbability) { this.precipitationProbability = precipitationProbability; } // Added
-        public List<Double> getWindSpeed10m() { return windSpeed10m; } // Added
-        public void setWindSpeed10m(List<Double> windSpeed10m) { this.windSpeed10m = windSpeed10m; } // Added
-        public List<Double> getUvIndex() { return uvIndex; }
-        public void setUvIndex(List<Double> uvIndex) { this.uvIndex = uvIndex; }
-        public List<Double> getVisibility() { return visibility; }
-        public void setVisibility(List<Double> visibility) { this.visibility = visibility; }
+    public static final class HourlyData {
+        static final HourlyData EMPTY = new HourlyData(TimeAxis.EMPTY, null, null, null, null, null, null);
+
+        private final TimeAxis time;
+        private final float[] temperature2m;
+        private final byte[] weatherCode;
+        private final byte[] precipitationProbability;
+        private final float[] windSpeed10m;
+        private final float[] uvIndex;
+        private final float[] visibility;
+
+        public HourlyData(TimeAxis time, float[] temperature2m, byte[] weatherCode, byte[] precipitationProbability,
+                float[] windSpeed10m, float[] uvIndex, float[] visibility) {
+            this.time = time != null ? time : TimeAxis.EMPTY;
+            this.temperature2m = orEmpty(temperature2m);
+            this.weatherCode = orEmpty(weatherCode);
+            this.precipitationProbability = orEmpty(precipitationProbability);
+            this.windSpeed10m = orEmpty(windSpeed10m);
+            this.uvIndex = orEmpty(uvIndex);
+            this.visibility = orEmpty(visibility);
+        }
+
+        public int size() { return time.size(); }
+        public TimeAxis getTimeAxis() { return time; }
+
+        //<editor-fold desc="Indexed getters">
+        public double getTemperature2m(int index) { return at(temperature2m, index); }
+        public int getWeatherCode(int index) { return at(weatherCode, index); }
+        public int getPrecipitationProbability(int index) { return at(precipitationProbability, index); }
+        public double getWindSpeed10m(int index) { return at(windSpeed10m, index); }
+        public double getUvIndex(int index) { return at(uvIndex, index); }
+        public double getVisibility(int index) { return at(visibility, index); }
+        //</editor-fold>
+
+        /**
+         * Dự báo theo giờ của ngày {@code date}. Khoảng giờ được tra từ chỉ mục ngày của
+         * {@link TimeAxis}; mỗi {@link HourlyForecast} chỉ được tạo khi phần tử được đọc.
+         */
+        public List<HourlyForecast> getHourlyForecasts(LocalDate date) {
+            return getHourlyForecasts(date, date);
+        }
+
+        /**
+         * Dự báo theo giờ từ ngày {@code from} đến hết ngày {@code to}.
+         */
+        public List<HourlyForecast> getHourlyForecasts(LocalDate from, LocalDate to) {
+            int start = time.dayStart(from);
+            int end = time.dayEnd(to);
+            return new HourlyForecastView(start, Math.max(start, end));
+        }
+
+        private final class HourlyForecastView extends AbstractList<HourlyForecast> implements RandomAccess {
+            private final int start;
+            private final int end;
+
+            HourlyForecastView(int start, int end) {
+                this.start = start;
+                this.end = end;
+            }
+
+            @Override
+            public HourlyForecast get(int index) {
+                if (index < 0 || index >= end - start) {
+                    throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size());
+                }
+                int i = start + index;
+                return new HourlyForecast(time.getDateTime(i).toLocalTime(), getTemperature2m(i),
+                        orZero(getWeatherCode(i)), orZero(getPrecipitationProbability(i)), getWindSpeed10m(i));
+            }
+
+            @Override
+            public int size() {
+                return end - start;
+            }
+        }
+
+        //<editor-fold desc="List views">
+        public List<String> getTime() { return time.asStrings(); }
+        public List<Double> getTemperature2m() { return PrimitiveLists.of(temperature2m); }
+        public List<Integer> getWeatherCode() { return PrimitiveLists.of(weatherCode, MISSING_BYTE); }
+        public List<Integer> getPrecipitationProbability() { return PrimitiveLists.of(precipitationProbability, MISSING_BYTE); }
+        public List<Double> getWindSpeed10m() { return PrimitiveLists.of(windSpeed10m); }
+        public List<Double> getUvIndex() { return PrimitiveLists.of(uvIndex); }
+        public List<Double> getVisibility() { return PrimitiveLists.of(visibility); }
         //</editor-fold>
     }
 
-    @JsonIgnoreProperties(ignoreUnknown = true)
-    public static class DailyData {
-        @JsonProperty("time") private List<String> time = new ArrayList<>();
-        @JsonProperty("weather_code") private List<Integer> weatherCode = new ArrayList<>();
-        @JsonProperty("temperature_2m_max") private List<Double> temperatureMax = new ArrayList<>();
-        @JsonProperty("temperature_2m_min") private List<Double> temperatureMin = new ArrayList<>();
-        @JsonProperty("apparent_temperature_max") private List<Double> apparentTemperatureMax = new ArrayList<>();
-        @JsonProperty("apparent_temperature_min") private List<Double> apparentTemperatureMin = new ArrayList<>();
-        @JsonProperty("uv_index_max") private List<Double> uvIndexMax = new ArrayList<>();
-        @JsonProperty("precipitation_probability_max") private List<Integer> precipitationProbabilityMax = new ArrayList<>();
-
-        //<editor-fold desc="Getters and Setters">
-        public List<String> getTime() { return time; }
-        public void setTime(List<String> time) { this.time = time; }
-        public List<Integer> getWeatherCode() { return weatherCode; }
-        public void setWeatherCode(List<Integer> weatherCode) { this.weatherCode = weatherCode; }
-        public List<Double> getTemperatureMax() { return temperatureMax; }
-        public void setTemperatureMax(List<Double> temperatureMax) { this.temperatureMax = temperatureMax; }
-        public List<Double> getTemperatureMin() { return temperatureMin; }
-        public void setTemperatureMin(List<Double> temperatureMin) { this.temperatureMin = temperatureMin; }
-        public List<Double> getApparentTemperatureMax() { return apparentTemperatureMax; }
-        public void setApparentTemperatureMax(List<Double> apparentTemperatureMax) { this.apparentTemperatureMax = apparentTemperatureMax; }
-        public List<Double> getApparentTemperatureMin() { return apparentTemperatureMin; }
-        public void setApparentTemperatureMin(List<Double> apparentTemperatureMin) { this.apparentTemperatureMin = apparentTemperatureMin; }
-        public List<Double> getUvIndexMax() { return uvIndexMax; }
-        public void setUvIndexMax(List<Double> uvIndexMax) { this.uvIndexMax = uvIndexMax; }
-        public List<Integer> getPrecipitationProbabilityMax() { return precipitationProbabilityMax; }
-        public void setPrecipitationProbabilityMax(List<Integer> precipitationProbabilityMax) { this.precipitationProbabilityMax = precipitationProbabilityMax; }
+    public static final class DailyData {
+        static final DailyData EMPTY = new DailyData(TimeAxis.EMPTY, null, null, null, null, null,
+                null, null, null, null, null);
+
+        private final TimeAxis time;
+        private final byte[] weatherCode;
+        private final double[] temperatureMax;
+        private final double[] temperatureMin;
+        private final double[] apparentTemperatureMax;
+        private final double[] apparentTemperatureMin;
+        private final double[] uvIndexMax;
+        private final byte[] precipitationProbabilityMax;
+        private final double[] precipitationSum;
+        private final double[] precipitationHours;
+        private final double[] windSpeed10mMax;
+
+        public DailyData(TimeAxis time, byte[] weatherCode, double[] temperatureMax, double[] temperatureMin,
+                double[] apparentTemperatureMax, double[] apparentTemperatureMin, double[] uvIndexMax,
+                byte[] precipitationProbabilityMax, double[] precipitationSum, double[] precipitationHours,
+                double[] windSpeed10mMax) {
+            this.time = time != null ? time : TimeAxis.EMPTY;
+            this.weatherCode = orEmpty(weatherCode);
+            this.temperatureMax = orEmpty(temperatureMax);
+            this.temperatureMin = orEmpty(temperatureMin);
+            this.apparentTemperatureMax = orEmpty(apparentTemperatureMax);
+            this.apparentTemperatureMin = orEmpty(apparentTemperatureMin);
+            this.uvIndexMax = orEmpty(uvIndexMax);
+            this.precipitationProbabilityMax = orEmpty(precipitationProbabilityMax);
+            this.precipitationSum = orEmpty(precipitationSum);
+            this.precipitationHours = orEmpty(precipitationHours);
+            this.windSpeed10mMax = orEmpty(windSpeed10mMax);
+        }
+
+        public int size() { return time.size(); }
+        public TimeAxis getTimeAxis() { return time; }
+
+        //<editor-fold desc="Indexed getters">
+        public int getWeatherCode(int index) { return at(weatherCode, index); }
+        public double getTemperatureMax(int index) { return at(temperatureMax, index); }
+        public double getTemperatureMin(int index) { return at(temperatureMin, index); }
+        public double getApparentTemperatureMax(int index) { return at(apparentTemperatureMax, index); }
+        public double getApparentTemperatureMin(int index) { return at(apparentTemperatureMin, index); }
+        public double getUvIndexMax(int index) { return at(uvIndexMax, index); }
+        public int getPrecipitationProbabilityMax(int index) { return at(precipitationProbabilityMax, index); }
+        public double getPrecipitationSum(int index) { return at(precipitationSum, index); }
+        public double getPrecipitationHours(int index) { return at(precipitationHours, index); }
+        public double getWindSpeed10mMax(int index) { return at(windSpeed10mMax, index); }
+        //</editor-fold>
+
+        //<editor-fold desc="List views">
+        public List<String> getTime() { return time.asStrings(); }
+        public List<Integer> getWeatherCode() { return PrimitiveLists.of(weatherCode, MISSING_BYTE); }
+        public List<Double> getTemperatureMax() { return PrimitiveLists.of(temperatureMax); }
+        public List<Double> getTemperatureMin() { return PrimitiveLists.of(temperatureMin); }
+        public List<Double> getApparentTemperatureMax() { return PrimitiveLists.of(apparentTemperatureMax); }
+        public List<Double> getApparentTemperatureMin() { return PrimitiveLists.of(apparentTemperatureMin); }
+        public List<Double> getUvIndexMax() { return PrimitiveLists.of(uvIndexMax); }
+        public List<Integer> getPrecipitationProbabilityMax() { return PrimitiveLists.of(precipitationProbabilityMax, MISSING_BYTE); }
+        public List<Double> getPrecipitationSum() { return PrimitiveLists.of(precipitationSum); }
+        public List<Double> getPrecipitationHours() { return PrimitiveLists.of(precipitationHours); }
+        public List<Double> getWindSpeed10mMax() { return PrimitiveLists.of(windSpeed10mMax); }
         //</editor-fold>
     }
 }
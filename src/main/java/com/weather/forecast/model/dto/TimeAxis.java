@@ -0,0 +1,167 @@
+package com.weather.forecast.model.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Trục thời gian của một chuỗi hourly/daily từ Open-Meteo, lưu dạng mốc bắt đầu + bước
+ * (phút, tính theo giờ địa phương của response) thay cho mảng timestamp String.
+ * Nếu các mốc không đều (vd: chuyển giờ DST) thì giữ từng mốc trong một mảng long.
+ * Chỉ mục ngày -> offset được dựng sẵn khi tạo, nên tìm các mốc của một ngày là O(1).
+ * Không thay đổi sau khi tạo.
+ */
+public final class TimeAxis {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+
+    public static final TimeAxis EMPTY = new TimeAxis(0, 0, 0, null, false);
+
+    private final long startMinute; // phút kể từ 1970-01-01T00:00 (giờ địa phương)
+    private final int stepMinutes;
+    private final int size;
+    private final long[] minutes;   // chỉ dùng khi các mốc không đều
+    private final boolean dateOnly;
+
+    // Chỉ mục theo ngày: mốc của ngày firstEpochDay + d nằm trong [dayStarts[d], dayStarts[d + 1])
+    private final long firstEpochDay;
+    private final int[] dayStarts;
+
+    private TimeAxis(long startMinute, int stepMinutes, int size, long[] minutes, boolean dateOnly) {
+        this.startMinute = startMinute;
+        this.stepMinutes = stepMinutes;
+        this.size = size;
+        this.minutes = minutes;
+        this.dateOnly = dateOnly;
+        this.firstEpochDay = size > 0 ? epochDay(minuteAt(0)) : 0;
+        this.dayStarts = size > 0 ? buildDayStarts() : new int[] { 0 };
+    }
+
+    /**
+     * Tạo trục từ các timestamp ISO của Open-Meteo ("yyyy-MM-dd'T'HH:mm" cho hourly,
+     * "yyyy-MM-dd" cho daily).
+     */
+    public static TimeAxis parse(String[] values) {
+        if (values.length == 0) {
+            return EMPTY;
+        }
+        boolean dateOnly = values[0].indexOf('T') < 0;
+        long[] parsed = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            parsed[i] = toMinute(values[i], dateOnly);
+        }
+
+        long step = parsed.length > 1 ? parsed[1] - parsed[0] : (dateOnly ? MINUTES_PER_DAY : 60);
+        boolean regular = step > 0 && step <= Integer.MAX_VALUE;
+        for (int i = 2; i < parsed.length && regular; i++) {
+            regular = parsed[i] - parsed[i - 1] == step;
+        }
+        return regular
+                ? new TimeAxis(parsed[0], (int) step, parsed.length, null, dateOnly)
+                : new TimeAxis(parsed[0], 0, parsed.length, parsed, dateOnly);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public LocalDateTime getDateTime(int index) {
+        return LocalDateTime.ofEpochSecond(minuteAt(index) * 60, 0, ZoneOffset.UTC);
+    }
+
+    public LocalDate getDate(int index) {
+        return LocalDate.ofEpochDay(epochDay(minuteAt(index)));
+    }
+
+    /**
+     * Vị trí mốc đầu tiên của ngày {@code date} (bằng {@link #dayEnd} nếu ngày không có mốc
+     * nào hoặc nằm ngoài trục).
+     */
+    public int dayStart(LocalDate date) {
+        long offset = date.toEpochDay() - firstEpochDay;
+        if (offset < 0) {
+            return 0;
+        }
+        return offset < dayStarts.length - 1 ? dayStarts[(int) offset] : size;
+    }
+
+    /**
+     * Vị trí ngay sau mốc cuối cùng của ngày {@code date}.
+     */
+    public int dayEnd(LocalDate date) {
+        long offset = date.toEpochDay() - firstEpochDay;
+        if (offset < 0) {
+            return 0;
+        }
+        return offset < dayStarts.length - 1 ? dayStarts[(int) offset + 1] : size;
+    }
+
+    /**
+     * Timestamp theo đúng định dạng của Open-Meteo.
+     */
+    public String format(int index) {
+        return dateOnly ? getDate(index).toString() : getDateTime(index).toString();
+    }
+
+    /**
+     * View List các timestamp dạng String, chỉ tạo String khi được đọc.
+     */
+    public List<String> asStrings() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        return new StringView();
+    }
+
+    private long minuteAt(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return minutes != null ? minutes[index] : startMinute + (long) index * stepMinutes;
+    }
+
+    private int[] buildDayStarts() {
+        int days = (int) (epochDay(minuteAt(size - 1)) - firstEpochDay) + 1;
+        int[] starts = new int[days + 1];
+        int index = 0;
+        for (int day = 0; day < days; day++) {
+            starts[day] = index;
+            while (index < size && epochDay(minuteAt(index)) == firstEpochDay + day) {
+                index++;
+            }
+        }
+        starts[days] = size;
+        return starts;
+    }
+
+    private static long epochDay(long minute) {
+        return Math.floorDiv(minute, MINUTES_PER_DAY);
+    }
+
+    private static long toMinute(String value, boolean dateOnly) {
+        if (dateOnly) {
+            return LocalDate.parse(value).toEpochDay() * MINUTES_PER_DAY;
+        }
+        return LocalDateTime.parse(value).toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private final class StringView extends AbstractList<String> implements RandomAccess {
+        @Override
+        public String get(int index) {
+            return format(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
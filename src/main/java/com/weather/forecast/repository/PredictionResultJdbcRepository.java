@@ -0,0 +1,65 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.PredictionResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi hàng loạt vào bảng prediction_results bằng JDBC batch.
+ * Ghi lại cùng một dự đoán là idempotent nhờ unique constraint (province, prediction_date).
+ */
+@Repository
+public class PredictionResultJdbcRepository {
+
+    // Dự đoán đầu tiên của mỗi (tỉnh, ngày) được giữ, các lần sau bị bỏ qua
+    private static final String INSERT_IGNORE_EXISTING_SQL = "INSERT INTO prediction_results ("
+            + "province, prediction_date, predicted_max_temp, predicted_min_temp, predicted_rain_prob, "
+            + "predicted_weather_code, created_at, is_verified) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (province, prediction_date) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public PredictionResultJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Chèn các dự đoán trong một JDBC batch, bỏ qua những (province, prediction_date) đã tồn tại.
+     *
+     * @return Số dòng được chèn mới
+     */
+    public int insertIgnoreExisting(List<PredictionResult> results) {
+        if (results.isEmpty()) {
+            return 0;
+        }
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_IGNORE_EXISTING_SQL, results, results.size(),
+                this::bindInsert);
+
+        int inserted = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                inserted += Math.max(count, 0);
+            }
+        }
+        return inserted;
+    }
+
+    private void bindInsert(PreparedStatement ps, PredictionResult result) throws SQLException {
+        ps.setString(1, result.getProvince());
+        ps.setObject(2, result.getPredictionDate(), Types.DATE);
+        ps.setObject(3, result.getPredictedMaxTemp(), Types.DOUBLE);
+        ps.setObject(4, result.getPredictedMinTemp(), Types.DOUBLE);
+        ps.setObject(5, result.getPredictedRainProb(), Types.DOUBLE);
+        ps.setObject(6, result.getPredictedWeatherCode(), Types.INTEGER);
+        ps.setObject(7, result.getCreatedAt(), Types.TIMESTAMP);
+        ps.setBoolean(8, false);
+    }
+}
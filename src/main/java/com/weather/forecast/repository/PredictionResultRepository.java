@@ -2,10 +2,13 @@ package com.weather.forecast.repository;
 
 import com.weather.forecast.model.PredictionResult;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -18,9 +21,31 @@ public interface PredictionResultRepository extends JpaRepository<PredictionResu
     Optional<PredictionResult> findByProvinceAndPredictionDate(String province, LocalDate predictionDate);
 
     /**
-     * Lấy các dự đoán chưa verify (để cập nhật actual data)
+     * Đếm các dự đoán chưa verify (chưa có actual data) trước một ngày
      */
-    List<PredictionResult> findByIsVerifiedFalseAndPredictionDateBefore(LocalDate date);
+    long countByIsVerifiedFalseAndPredictionDateBefore(LocalDate date);
+
+    /**
+     * Verify tất cả dự đoán chưa verify trước {@code before} bằng một câu UPDATE join với
+     * weather_history (cùng tỉnh, cùng ngày), tính luôn MAE. Dự đoán chưa có dữ liệu thực tế
+     * được giữ nguyên để lần chạy sau verify.
+     *
+     * @return Số dự đoán đã verify
+     */
+    @Modifying
+    @Query(value = "UPDATE prediction_results p SET "
+            + "actual_max_temp = h.temp_max, "
+            + "actual_min_temp = h.temp_min, "
+            + "actual_rain_prob = h.precipitation_probability, "
+            + "actual_weather_code = h.weather_code, "
+            + "mae_max_temp = ABS(p.predicted_max_temp - h.temp_max), "
+            + "mae_min_temp = ABS(p.predicted_min_temp - h.temp_min), "
+            + "is_verified = TRUE, "
+            + "verified_at = :verifiedAt "
+            + "FROM weather_history h "
+            + "WHERE h.province = p.province AND h.record_date = p.prediction_date "
+            + "AND p.is_verified = FALSE AND p.prediction_date < :before", nativeQuery = true)
+    int verifyAgainstHistory(@Param("before") LocalDate before, @Param("verifiedAt") LocalDateTime verifiedAt);
 
     /**
      * Lấy dự đoán gần nhất của một tỉnh
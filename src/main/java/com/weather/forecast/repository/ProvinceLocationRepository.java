@@ -0,0 +1,19 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.ProvinceLocation;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+/**
+ * Repository cho bảng province_locations - tọa độ đã geocode của các tỉnh.
+ */
+@Repository
+public interface ProvinceLocationRepository extends JpaRepository<ProvinceLocation, Long> {
+
+    /**
+     * Tìm tọa độ theo lookup key đã chuẩn hoá.
+     */
+    Optional<ProvinceLocation> findByLookupKey(String lookupKey);
+}
@@ -0,0 +1,123 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.WeatherHistory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi hàng loạt vào bảng weather_history bằng JDBC batch.
+ * JPA không batch được INSERT vì id dùng GenerationType.IDENTITY, nên đường ghi
+ * khối lượng lớn (thu thập lịch sử) đi thẳng qua JdbcTemplate.
+ */
+@Repository
+public class WeatherHistoryJdbcRepository {
+
+    // Dựa vào unique constraint (province, record_date): ngày đã có thì bỏ qua
+    private static final String INSERT_IGNORE_EXISTING_SQL = "INSERT INTO weather_history ("
+            + "province, latitude, longitude, record_date, record_time, temp_max, temp_min, temp_current, "
+            + "humidity, wind_speed, precipitation, precipitation_probability, pressure, cloud_cover, "
+            + "weather_code, recorded_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (province, record_date) DO NOTHING";
+
+    // N ngày gần nhất của mỗi tỉnh, chỉ các cột dùng làm lag features
+    private static final String LATEST_FEATURE_ROWS_SQL = "SELECT province, record_date, latitude, longitude, "
+            + "temp_max, temp_min, precipitation_probability FROM ("
+            + "SELECT h.*, ROW_NUMBER() OVER (PARTITION BY province ORDER BY record_date DESC) AS rn "
+            + "FROM weather_history h) t WHERE rn <= ?";
+
+    /**
+     * Nhận từng dòng lag features; giá trị NULL được truyền là {@link Double#NaN}.
+     */
+    @FunctionalInterface
+    public interface FeatureRowHandler {
+        void accept(String province, long epochDay, double latitude, double longitude,
+                double tempMax, double tempMin, double precipitationProbability);
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public WeatherHistoryJdbcRepository(JdbcTemplate jdbcTemplate,
+            @Value("${weather-history.jdbc.batch-size:500}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Chèn các bản ghi, bỏ qua những (province, record_date) đã tồn tại.
+     *
+     * @return Số dòng được chèn cho từng bản ghi, cùng thứ tự với {@code records}
+     *         (1 = chèn mới, 0 = đã tồn tại)
+     */
+    public int[] insertIgnoreExisting(List<WeatherHistory> records) {
+        int[] inserted = new int[records.size()];
+        if (records.isEmpty()) {
+            return inserted;
+        }
+
+        int[][] counts = jdbcTemplate.batchUpdate(INSERT_IGNORE_EXISTING_SQL, records, batchSize,
+                this::bindInsert);
+
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                inserted[index++] = Math.max(count, 0);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Duyệt {@code daysPerProvince} ngày gần nhất của mỗi tỉnh mà không tạo entity.
+     *
+     * @return Số dòng đã đọc
+     */
+    public int forEachLatestFeatureRow(int daysPerProvince, FeatureRowHandler handler) {
+        int[] rows = { 0 };
+        jdbcTemplate.query(LATEST_FEATURE_ROWS_SQL, rs -> {
+            handler.accept(rs.getString("province"),
+                    rs.getDate("record_date").toLocalDate().toEpochDay(),
+                    rs.getDouble("latitude"),
+                    rs.getDouble("longitude"),
+                    getDoubleOrNaN(rs, "temp_max"),
+                    getDoubleOrNaN(rs, "temp_min"),
+                    getDoubleOrNaN(rs, "precipitation_probability"));
+            rows[0]++;
+        }, daysPerProvince);
+        return rows[0];
+    }
+
+    private static double getDoubleOrNaN(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? Double.NaN : value;
+    }
+
+    private void bindInsert(PreparedStatement ps, WeatherHistory history) throws SQLException {
+        ps.setString(1, history.getProvince());
+        ps.setObject(2, history.getLatitude(), Types.DOUBLE);
+        ps.setObject(3, history.getLongitude(), Types.DOUBLE);
+        ps.setObject(4, history.getRecordDate(), Types.DATE);
+        ps.setObject(5, history.getRecordTime(), Types.TIME);
+        ps.setObject(6, history.getTempMax(), Types.DOUBLE);
+        ps.setObject(7, history.getTempMin(), Types.DOUBLE);
+        ps.setObject(8, history.getTempCurrent(), Types.DOUBLE);
+        ps.setObject(9, history.getHumidity(), Types.DOUBLE);
+        ps.setObject(10, history.getWindSpeed(), Types.DOUBLE);
+        ps.setObject(11, history.getPrecipitation(), Types.DOUBLE);
+        ps.setObject(12, history.getPrecipitationProbability(), Types.DOUBLE);
+        ps.setObject(13, history.getPressure(), Types.DOUBLE);
+        ps.setObject(14, history.getCloudCover(), Types.DOUBLE);
+        ps.setObject(15, history.getWeatherCode(), Types.INTEGER);
+        ps.setObject(16, history.getRecordedAt(), Types.TIMESTAMP);
+    }
+}
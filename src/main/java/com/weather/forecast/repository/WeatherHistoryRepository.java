@@ -16,6 +16,26 @@ import java.util.Optional;
 @Repository
 public interface WeatherHistoryRepository extends JpaRepository<WeatherHistory, Long> {
 
+    /**
+     * Thống kê tổng hợp của các bản ghi từ một ngày trở đi (tính trong database).
+     * Giá trị trung bình/độ lệch chuẩn là null nếu không có dữ liệu.
+     */
+    interface WindowStats {
+        long getRecordCount();
+
+        Double getAvgMaxTemp();
+
+        Double getAvgMinTemp();
+
+        long getMaxTempCount();
+
+        Double getStddevMaxTemp();
+
+        long getRainProbCount();
+
+        Double getStddevRainProb();
+    }
+
     /**
      * Tìm tất cả bản ghi của một tỉnh, sắp xếp theo ngày giảm dần.
      */
@@ -53,6 +73,45 @@ public interface WeatherHistoryRepository extends JpaRepository<WeatherHistory,
      */
     boolean existsByProvinceAndRecordDate(String province, LocalDate recordDate);
 
+    /**
+     * Lấy danh sách các tỉnh đã có bản ghi cho một ngày cụ thể.
+     */
+    @Query("SELECT w.province FROM WeatherHistory w WHERE w.recordDate = ?1")
+    List<String> findProvincesByRecordDate(LocalDate recordDate);
+
+    /**
+     * Watermark của một tỉnh: ngày mới nhất đã có dữ liệu, không sau {@code maxDate}.
+     * Trả về null nếu chưa có bản ghi nào.
+     */
+    @Query("SELECT MAX(w.recordDate) FROM WeatherHistory w WHERE w.province = ?1 AND w.recordDate <= ?2")
+    LocalDate findLatestRecordDate(String province, LocalDate maxDate);
+
+    /**
+     * Ngày cũ nhất đã có dữ liệu của một tỉnh (điểm tiếp tục khi backfill về quá khứ).
+     * Trả về null nếu chưa có bản ghi nào.
+     */
+    @Query("SELECT MIN(w.recordDate) FROM WeatherHistory w WHERE w.province = ?1")
+    LocalDate findEarliestRecordDate(String province);
+
+    /**
+     * Thống kê các bản ghi từ ngày {@code since} trở đi bằng một câu aggregate,
+     * chỉ trả về một dòng dù bảng lớn đến đâu.
+     */
+    @Query(value = "SELECT COUNT(*) AS \"recordCount\", "
+            + "AVG(temp_max) AS \"avgMaxTemp\", "
+            + "AVG(temp_min) AS \"avgMinTemp\", "
+            + "COUNT(temp_max) AS \"maxTempCount\", "
+            + "STDDEV_POP(temp_max) AS \"stddevMaxTemp\", "
+            + "COUNT(precipitation_probability) AS \"rainProbCount\", "
+            + "STDDEV_POP(precipitation_probability) AS \"stddevRainProb\" "
+            + "FROM weather_history WHERE record_date >= ?1", nativeQuery = true)
+    WindowStats getWindowStats(LocalDate since);
+
+    /**
+     * Đếm số bản ghi của một ngày.
+     */
+    long countByRecordDate(LocalDate recordDate);
+
     /**
      * Lấy danh sách các tỉnh đã có dữ liệu.
      */
@@ -0,0 +1,50 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.WeatherLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * Ghi hàng loạt vào bảng weather_logs bằng JDBC batch (cùng lý do với
+ * WeatherHistoryJdbcRepository: id dùng GenerationType.IDENTITY nên JPA không batch được).
+ */
+@Repository
+public class WeatherLogJdbcRepository {
+
+    private static final String INSERT_SQL = "INSERT INTO weather_logs ("
+            + "city, temperature, humidity, wind_speed, conditions, update_time, saved_date) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WeatherLogJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Chèn tất cả các log trong một JDBC batch.
+     */
+    public void insertAll(List<WeatherLog> logs) {
+        if (logs.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, logs, logs.size(), this::bindInsert);
+    }
+
+    private void bindInsert(PreparedStatement ps, WeatherLog log) throws SQLException {
+        ps.setString(1, log.getCity());
+        ps.setObject(2, log.getTemperature(), Types.DOUBLE);
+        ps.setObject(3, log.getHumidity(), Types.INTEGER);
+        ps.setObject(4, log.getWindSpeed(), Types.DOUBLE);
+        ps.setString(5, log.getConditions());
+        ps.setObject(6, log.getUpdateTime(), Types.TIMESTAMP);
+        ps.setObject(7, log.getSavedDate(), Types.TIMESTAMP);
+    }
+}
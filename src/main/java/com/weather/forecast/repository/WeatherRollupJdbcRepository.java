@@ -0,0 +1,208 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.model.WeatherRollup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Ghi bảng weather_rollups bằng JDBC: cộng dồn các bản ghi weather_history mới
+ * (INSERT ... ON CONFLICT DO UPDATE) và tính lại từ weather_history khi rebuild.
+ */
+@Repository
+public class WeatherRollupJdbcRepository {
+
+    private static final String COLUMNS = "province, period_type, period_start, record_count, last_record_date, "
+            + "max_temp, min_temp, temp_max_sum, temp_max_count, temp_min_sum, temp_min_count, "
+            + "precipitation_sum, precipitation_count, updated_at";
+
+    // GREATEST/LEAST của PostgreSQL bỏ qua NULL nên kỳ chưa có nhiệt độ vẫn cộng dồn đúng
+    private static final String UPSERT_SQL = "INSERT INTO weather_rollups (" + COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON CONFLICT (province, period_type, period_start) DO UPDATE SET "
+            + "record_count = weather_rollups.record_count + EXCLUDED.record_count, "
+            + "last_record_date = GREATEST(weather_rollups.last_record_date, EXCLUDED.last_record_date), "
+            + "max_temp = GREATEST(weather_rollups.max_temp, EXCLUDED.max_temp), "
+            + "min_temp = LEAST(weather_rollups.min_temp, EXCLUDED.min_temp), "
+            + "temp_max_sum = weather_rollups.temp_max_sum + EXCLUDED.temp_max_sum, "
+            + "temp_max_count = weather_rollups.temp_max_count + EXCLUDED.temp_max_count, "
+            + "temp_min_sum = weather_rollups.temp_min_sum + EXCLUDED.temp_min_sum, "
+            + "temp_min_count = weather_rollups.temp_min_count + EXCLUDED.temp_min_count, "
+            + "precipitation_sum = weather_rollups.precipitation_sum + EXCLUDED.precipitation_sum, "
+            + "precipitation_count = weather_rollups.precipitation_count + EXCLUDED.precipitation_count, "
+            + "updated_at = EXCLUDED.updated_at";
+
+    // %1$s = biểu thức ngày bắt đầu kỳ, %2$s = điều kiện lọc record_date
+    private static final String REBUILD_SQL_TEMPLATE = "INSERT INTO weather_rollups (" + COLUMNS + ") "
+            + "SELECT province, ?, %1$s, COUNT(*), MAX(record_date), MAX(temp_max), MIN(temp_min), "
+            + "COALESCE(SUM(temp_max), 0), COUNT(temp_max), COALESCE(SUM(temp_min), 0), COUNT(temp_min), "
+            + "COALESCE(SUM(precipitation), 0), COUNT(precipitation), ? "
+            + "FROM weather_history %2$s GROUP BY province, %1$s";
+
+    // Chặn các lệnh upsert khi thu thập dữ liệu cho đến khi rebuild commit
+    private static final String LOCK_SQL = "LOCK TABLE weather_rollups IN SHARE ROW EXCLUSIVE MODE";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public WeatherRollupJdbcRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Cộng các bản ghi weather_history vừa chèn vào rollup ngày/tuần/tháng của chúng.
+     * Các bản ghi cùng kỳ được gộp trước nên mỗi kỳ chỉ tốn một lệnh trong batch.
+     *
+     * @return Số kỳ đã cập nhật
+     */
+    public int addAll(List<WeatherHistory> records) {
+        Map<Key, Delta> deltas = new LinkedHashMap<>();
+        for (WeatherHistory record : records) {
+            for (WeatherRollup.Period period : WeatherRollup.Period.values()) {
+                Key key = new Key(record.getProvince(), period, period.start(record.getRecordDate()));
+                deltas.computeIfAbsent(key, k -> new Delta()).add(record);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Map.Entry<Key, Delta>> rows = new ArrayList<>(deltas.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(), (ps, row) -> bindUpsert(ps, row, now));
+        return rows.size();
+    }
+
+    /**
+     * Tính lại các rollup từ weather_history. Phải chạy trong transaction: bảng bị
+     * khóa ghi đến khi commit để không lẫn với các lệnh cộng dồn đang chạy song song.
+     *
+     * @param since Chỉ tính lại các kỳ chứa ngày này trở về sau; null = toàn bộ bảng
+     * @return Số kỳ đã ghi
+     */
+    public int rebuild(LocalDate since) {
+        jdbcTemplate.execute(LOCK_SQL);
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+
+        int rows = 0;
+        for (WeatherRollup.Period period : WeatherRollup.Period.values()) {
+            if (since == null) {
+                jdbcTemplate.update("DELETE FROM weather_rollups WHERE period_type = ?", period.name());
+                rows += jdbcTemplate.update(String.format(REBUILD_SQL_TEMPLATE, period.getStartExpression(), ""),
+                        period.name(), now);
+            } else {
+                LocalDate from = period.start(since);
+                jdbcTemplate.update("DELETE FROM weather_rollups WHERE period_type = ? AND period_start >= ?",
+                        period.name(), from);
+                rows += jdbcTemplate.update(String.format(REBUILD_SQL_TEMPLATE, period.getStartExpression(),
+                        "WHERE record_date >= ?"), period.name(), now, from);
+            }
+        }
+        return rows;
+    }
+
+    private void bindUpsert(PreparedStatement ps, Map.Entry<Key, Delta> row, Timestamp now) throws SQLException {
+        Key key = row.getKey();
+        Delta delta = row.getValue();
+        ps.setString(1, key.province);
+        ps.setString(2, key.period.name());
+        ps.setObject(3, key.periodStart, Types.DATE);
+        ps.setLong(4, delta.recordCount);
+        ps.setObject(5, delta.lastRecordDate, Types.DATE);
+        ps.setObject(6, delta.maxTemp, Types.DOUBLE);
+        ps.setObject(7, delta.minTemp, Types.DOUBLE);
+        ps.setDouble(8, delta.tempMaxSum);
+        ps.setLong(9, delta.tempMaxCount);
+        ps.setDouble(10, delta.tempMinSum);
+        ps.setLong(11, delta.tempMinCount);
+        ps.setDouble(12, delta.precipitationSum);
+        ps.setLong(13, delta.precipitationCount);
+        ps.setTimestamp(14, now);
+    }
+
+    /**
+     * Khóa của một dòng rollup: (tỉnh, loại kỳ, ngày bắt đầu kỳ).
+     */
+    private static final class Key {
+        private final String province;
+        private final WeatherRollup.Period period;
+        private final LocalDate periodStart;
+
+        Key(String province, WeatherRollup.Period period, LocalDate periodStart) {
+            this.province = province;
+            this.period = period;
+            this.periodStart = periodStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return period == other.period && province.equals(other.province)
+                    && periodStart.equals(other.periodStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(province, period, periodStart);
+        }
+    }
+
+    /**
+     * Phần cộng thêm vào một dòng rollup (cùng ý nghĩa với các cột của bảng).
+     */
+    private static final class Delta {
+        private long recordCount;
+        private LocalDate lastRecordDate;
+        private Double maxTemp;
+        private Double minTemp;
+        private double tempMaxSum;
+        private long tempMaxCount;
+        private double tempMinSum;
+        private long tempMinCount;
+        private double precipitationSum;
+        private long precipitationCount;
+
+        void add(WeatherHistory record) {
+            recordCount++;
+            if (lastRecordDate == null || record.getRecordDate().isAfter(lastRecordDate)) {
+                lastRecordDate = record.getRecordDate();
+            }
+            Double tempMax = record.getTempMax();
+            if (tempMax != null) {
+                maxTemp = maxTemp == null ? tempMax : Math.max(maxTemp, tempMax);
+                tempMaxSum += tempMax;
+                tempMaxCount++;
+            }
+            Double tempMin = record.getTempMin();
+            if (tempMin != null) {
+                minTemp = minTemp == null ? tempMin : Math.min(minTemp, tempMin);
+                tempMinSum += tempMin;
+                tempMinCount++;
+            }
+            Double precipitation = record.getPrecipitation();
+            if (precipitation != null) {
+                precipitationSum += precipitation;
+                precipitationCount++;
+            }
+        }
+    }
+}
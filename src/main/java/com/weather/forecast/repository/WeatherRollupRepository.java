@@ -0,0 +1,83 @@
+package com.weather.forecast.repository;
+
+import com.weather.forecast.model.WeatherRollup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Repository đọc bảng weather_rollups. Các truy vấn chỉ duyệt số kỳ (tỉnh x ngày/tuần/tháng),
+ * không chạm vào weather_history.
+ */
+@Repository
+public interface WeatherRollupRepository extends JpaRepository<WeatherRollup, Long> {
+
+    /**
+     * Tổng hợp của nhiều kỳ: số bản ghi và nhiệt độ trung bình (null nếu không có dữ liệu).
+     */
+    interface Totals {
+        long getRecordCount();
+
+        Double getAvgMaxTemp();
+
+        Double getAvgMinTemp();
+    }
+
+    /**
+     * Thống kê của một tỉnh: số bản ghi, ngày mới nhất và nhiệt độ.
+     */
+    interface ProvinceStats {
+        String getProvince();
+
+        long getRecordCount();
+
+        LocalDate getLatestDate();
+
+        Double getMinTemp();
+
+        Double getAvgMaxTemp();
+    }
+
+    /**
+     * Tổng hợp các kỳ {@code periodType} bắt đầu từ ngày {@code since} trở đi.
+     */
+    @Query("SELECT COALESCE(SUM(r.recordCount), 0) AS recordCount, "
+            + "SUM(r.tempMaxSum) / NULLIF(SUM(r.tempMaxCount), 0) AS avgMaxTemp, "
+            + "SUM(r.tempMinSum) / NULLIF(SUM(r.tempMinCount), 0) AS avgMinTemp "
+            + "FROM WeatherRollup r WHERE r.periodType = ?1 AND r.periodStart >= ?2")
+    Totals getTotals(WeatherRollup.Period periodType, LocalDate since);
+
+    /**
+     * Tổng số bản ghi weather_history (cộng các rollup theo tháng).
+     */
+    @Query("SELECT COALESCE(SUM(r.recordCount), 0) FROM WeatherRollup r WHERE r.periodType = ?1")
+    long sumRecordCount(WeatherRollup.Period periodType);
+
+    /**
+     * Các tỉnh đã có dữ liệu.
+     */
+    @Query("SELECT DISTINCT r.province FROM WeatherRollup r WHERE r.periodType = ?1 ORDER BY r.province")
+    List<String> findDistinctProvinces(WeatherRollup.Period periodType);
+
+    /**
+     * Thống kê theo tỉnh từ các rollup {@code periodType}, sắp xếp theo số bản ghi giảm dần.
+     * Dùng {@code PageRequest.of(0, n)} để chỉ lấy n tỉnh đầu, {@code Pageable.unpaged()} để lấy tất cả.
+     */
+    @Query("SELECT r.province AS province, SUM(r.recordCount) AS recordCount, "
+            + "MAX(r.lastRecordDate) AS latestDate, MIN(r.minTemp) AS minTemp, "
+            + "SUM(r.tempMaxSum) / NULLIF(SUM(r.tempMaxCount), 0) AS avgMaxTemp "
+            + "FROM WeatherRollup r WHERE r.periodType = ?1 "
+            + "GROUP BY r.province ORDER BY SUM(r.recordCount) DESC, r.province")
+    List<ProvinceStats> findProvinceStats(WeatherRollup.Period periodType,
+            Pageable pageable);
+
+    /**
+     * Các kỳ của một tỉnh trong khoảng ngày bắt đầu [from, to], sắp xếp tăng dần (dữ liệu biểu đồ).
+     */
+    List<WeatherRollup> findByProvinceAndPeriodTypeAndPeriodStartBetweenOrderByPeriodStartAsc(
+            String province, WeatherRollup.Period periodType, LocalDate from, LocalDate to);
+}
@@ -1,14 +1,20 @@
 package com.weather.forecast.service;
 
-import com.weather.forecast.model.WeatherHistory;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.weather.forecast.model.WeatherRollup;
 import com.weather.forecast.repository.WeatherHistoryRepository;
+import com.weather.forecast.repository.WeatherRollupRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service xử lý logic cho Admin Dashboard.
@@ -18,22 +24,31 @@ import java.util.stream.Collectors;
 public class AdminService {
 
     private final WeatherHistoryRepository weatherHistoryRepository;
+    private final WeatherRollupRepository weatherRollupRepository;
+    private final WeatherLogService weatherLogService;
+    private final CacheManager cacheManager;
 
     @Autowired
-    public AdminService(WeatherHistoryRepository weatherHistoryRepository) {
+    public AdminService(WeatherHistoryRepository weatherHistoryRepository,
+            WeatherRollupRepository weatherRollupRepository,
+            WeatherLogService weatherLogService,
+            CacheManager cacheManager) {
         this.weatherHistoryRepository = weatherHistoryRepository;
+        this.weatherRollupRepository = weatherRollupRepository;
+        this.weatherLogService = weatherLogService;
+        this.cacheManager = cacheManager;
     }
 
     // ==================== DASHBOARD STATISTICS ====================
 
     /**
-     * Lấy tổng quan thống kê cho dashboard.
+     * Lấy tổng quan thống kê cho dashboard (đọc từ bảng rollup, không quét weather_history).
      */
     public Map<String, Object> getDashboardStats() {
         Map<String, Object> stats = new HashMap<>();
 
-        long totalRecords = weatherHistoryRepository.count();
-        List<String> provinces = weatherHistoryRepository.findDistinctProvinces();
+        long totalRecords = weatherRollupRepository.sumRecordCount(WeatherRollup.Period.MONTH);
+        List<String> provinces = weatherRollupRepository.findDistinctProvinces(WeatherRollup.Period.MONTH);
 
         stats.put("totalRecords", totalRecords);
         stats.put("totalProvinces", provinces.size());
@@ -44,58 +59,29 @@ public class AdminService {
         LocalDate today = LocalDate.now();
         LocalDate weekAgo = today.minusDays(7);
 
-        List<WeatherHistory> recentRecords = weatherHistoryRepository.findAll().stream()
-                .filter(w -> w.getRecordDate() != null && !w.getRecordDate().isBefore(weekAgo))
-                .collect(Collectors.toList());
+        // Số bản ghi và nhiệt độ trung bình cộng từ rollup theo ngày
+        WeatherRollupRepository.Totals recent = weatherRollupRepository.getTotals(WeatherRollup.Period.DAY, weekAgo);
 
-        stats.put("recordsLast7Days", recentRecords.size());
+        stats.put("recordsLast7Days", recent.getRecordCount());
 
-        // Tính trung bình nhiệt độ
-        OptionalDouble avgMaxTemp = recentRecords.stream()
-                .filter(w -> w.getTempMax() != null)
-                .mapToDouble(WeatherHistory::getTempMax)
-                .average();
-
-        OptionalDouble avgMinTemp = recentRecords.stream()
-                .filter(w -> w.getTempMin() != null)
-                .mapToDouble(WeatherHistory::getTempMin)
-                .average();
-
-        stats.put("avgMaxTemp", avgMaxTemp.isPresent() ? Math.round(avgMaxTemp.getAsDouble() * 10) / 10.0 : 0);
-        stats.put("avgMinTemp", avgMinTemp.isPresent() ? Math.round(avgMinTemp.getAsDouble() * 10) / 10.0 : 0);
+        Double avgMaxTemp = recent.getAvgMaxTemp();
+        Double avgMinTemp = recent.getAvgMinTemp();
+        stats.put("avgMaxTemp", avgMaxTemp != null ? Math.round(avgMaxTemp * 10) / 10.0 : 0);
+        stats.put("avgMinTemp", avgMinTemp != null ? Math.round(avgMinTemp * 10) / 10.0 : 0);
 
         return stats;
     }
 
     /**
-     * Lấy thống kê số bản ghi theo từng tỉnh.
+     * Lấy thống kê số bản ghi theo từng tỉnh (một câu GROUP BY, cache ngắn hạn).
      */
+    @Cacheable(value = "provinceStats", key = "'all'")
     public List<Map<String, Object>> getProvinceStats() {
-        List<String> provinces = weatherHistoryRepository.findDistinctProvinces();
-        List<Map<String, Object>> provinceStats = new ArrayList<>();
-
-        for (String province : provinces) {
-            Map<String, Object> stat = new HashMap<>();
-            long count = weatherHistoryRepository.countByProvince(province);
-
-            List<WeatherHistory> records = weatherHistoryRepository.findByProvinceOrderByRecordDateDesc(province);
-            LocalDate latestDate = records.isEmpty() ? null : records.get(0).getRecordDate();
-
-            stat.put("province", province);
-            stat.put("recordCount", count);
-            stat.put("latestDate", latestDate);
-
-            provinceStats.add(stat);
-        }
-
-        // Sắp xếp theo số bản ghi giảm dần
-        provinceStats.sort((a, b) -> Long.compare((Long) b.get("recordCount"), (Long) a.get("recordCount")));
-
-        return provinceStats;
+        return toMaps(weatherRollupRepository.findProvinceStats(WeatherRollup.Period.MONTH, Pageable.unpaged()));
     }
 
     /**
-     * Lấy dữ liệu cho biểu đồ nhiệt độ 7 ngày gần nhất.
+     * Lấy dữ liệu cho biểu đồ nhiệt độ 7 ngày gần nhất (từ rollup theo ngày).
      */
     public Map<String, Object> getTemperatureChartData(String province) {
         Map<String, Object> chartData = new HashMap<>();
@@ -103,17 +89,20 @@ public class AdminService {
         LocalDate today = LocalDate.now();
         LocalDate weekAgo = today.minusDays(7);
 
-        List<WeatherHistory> records = weatherHistoryRepository
-                .findByProvinceAndRecordDateBetweenOrderByRecordDateAsc(province, weekAgo, today);
+        List<WeatherRollup> rollups = weatherRollupRepository
+                .findByProvinceAndPeriodTypeAndPeriodStartBetweenOrderByPeriodStartAsc(province, WeatherRollup.Period.DAY,
+                        weekAgo, today);
 
         List<String> labels = new ArrayList<>();
         List<Double> maxTemps = new ArrayList<>();
         List<Double> minTemps = new ArrayList<>();
 
-        for (WeatherHistory record : records) {
-            labels.add(record.getRecordDate().toString());
-            maxTemps.add(record.getTempMax() != null ? record.getTempMax() : 0);
-            minTemps.add(record.getTempMin() != null ? record.getTempMin() : 0);
+        for (WeatherRollup rollup : rollups) {
+            Double avgMaxTemp = rollup.getAvgMaxTemp();
+            Double avgMinTemp = rollup.getAvgMinTemp();
+            labels.add(rollup.getPeriodStart().toString());
+            maxTemps.add(avgMaxTemp != null ? Math.round(avgMaxTemp * 10) / 10.0 : 0);
+            minTemps.add(avgMinTemp != null ? Math.round(avgMinTemp * 10) / 10.0 : 0);
         }
 
         chartData.put("labels", labels);
@@ -127,10 +116,23 @@ public class AdminService {
     /**
      * Lấy top 5 tỉnh có nhiều bản ghi nhất.
      */
+    @Cacheable(value = "provinceStats", key = "#limit")
     public List<Map<String, Object>> getTopProvinces(int limit) {
-        return getProvinceStats().stream()
-                .limit(limit)
-                .collect(Collectors.toList());
+        return toMaps(weatherRollupRepository.findProvinceStats(WeatherRollup.Period.MONTH, PageRequest.of(0, limit)));
+    }
+
+    private List<Map<String, Object>> toMaps(List<WeatherRollupRepository.ProvinceStats> rows) {
+        List<Map<String, Object>> provinceStats = new ArrayList<>(rows.size());
+        for (WeatherRollupRepository.ProvinceStats row : rows) {
+            Map<String, Object> stat = new HashMap<>();
+            stat.put("province", row.getProvince());
+            stat.put("recordCount", row.getRecordCount());
+            stat.put("latestDate", row.getLatestDate());
+            stat.put("minTemp", row.getMinTemp());
+            stat.put("avgMaxTemp", row.getAvgMaxTemp() != null ? Math.round(row.getAvgMaxTemp() * 10) / 10.0 : null);
+            provinceStats.add(stat);
+        }
+        return provinceStats;
     }
 
     // ==================== ACCURACY TRACKING ====================
@@ -146,11 +148,9 @@ public class AdminService {
         LocalDate today = LocalDate.now();
         LocalDate weekAgo = today.minusDays(7);
 
-        List<WeatherHistory> allRecords = weatherHistoryRepository.findAll().stream()
-                .filter(w -> w.getRecordDate() != null && !w.getRecordDate().isBefore(weekAgo))
-                .collect(Collectors.toList());
+        WeatherHistoryRepository.WindowStats recent = weatherHistoryRepository.getWindowStats(weekAgo);
 
-        if (allRecords.isEmpty()) {
+        if (recent.getRecordCount() == 0) {
             metrics.put("tempAccuracy", 0);
             metrics.put("rainAccuracy", 0);
             metrics.put("overallAccuracy", 0);
@@ -160,10 +160,10 @@ public class AdminService {
 
         // Tính accuracy giả định (so sánh nhiệt độ dự đoán vs thực tế)
         // Trong thực tế, cần có bảng riêng lưu các dự đoán để so sánh
-        double tempVariance = calculateTemperatureVariance(allRecords);
+        double tempVariance = standardDeviation(recent.getMaxTempCount(), recent.getStddevMaxTemp());
         double tempAccuracy = Math.max(0, 100 - tempVariance * 5); // Đơn giản hóa
 
-        double rainProbVariance = calculateRainProbVariance(allRecords);
+        double rainProbVariance = standardDeviation(recent.getRainProbCount(), recent.getStddevRainProb());
         double rainAccuracy = Math.max(0, 100 - rainProbVariance * 10);
 
         double overallAccuracy = (tempAccuracy + rainAccuracy) / 2;
@@ -171,48 +171,19 @@ public class AdminService {
         metrics.put("tempAccuracy", Math.round(tempAccuracy * 10) / 10.0);
         metrics.put("rainAccuracy", Math.round(rainAccuracy * 10) / 10.0);
         metrics.put("overallAccuracy", Math.round(overallAccuracy * 10) / 10.0);
-        metrics.put("sampleSize", allRecords.size());
+        metrics.put("sampleSize", recent.getRecordCount());
 
         return metrics;
     }
 
-    private double calculateTemperatureVariance(List<WeatherHistory> records) {
-        if (records.size() < 2)
-            return 0;
-
-        List<Double> temps = records.stream()
-                .filter(w -> w.getTempMax() != null)
-                .map(WeatherHistory::getTempMax)
-                .collect(Collectors.toList());
-
-        if (temps.size() < 2)
-            return 0;
-
-        double mean = temps.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-        double variance = temps.stream()
-                .mapToDouble(t -> Math.pow(t - mean, 2))
-                .average()
-                .orElse(0);
-
-        return Math.sqrt(variance);
-    }
-
-    private double calculateRainProbVariance(List<WeatherHistory> records) {
-        List<Double> probs = records.stream()
-                .filter(w -> w.getPrecipitationProbability() != null)
-                .map(WeatherHistory::getPrecipitationProbability)
-                .collect(Collectors.toList());
-
-        if (probs.size() < 2)
+    /**
+     * Độ lệch chuẩn (population) do database tính; cần ít nhất 2 giá trị.
+     */
+    private double standardDeviation(long count, Double stddev) {
+        if (count < 2 || stddev == null) {
             return 0;
-
-        double mean = probs.stream().mapToDouble(Double::doubleValue).average().orElse(0);
-        double variance = probs.stream()
-                .mapToDouble(p -> Math.pow(p - mean, 2))
-                .average()
-                .orElse(0);
-
-        return Math.sqrt(variance);
+        }
+        return stddev;
     }
 
     // ==================== SYSTEM STATUS ====================
@@ -229,13 +200,44 @@ public class AdminService {
         status.put("modelStatus", "Active");
 
         // Kiểm tra dữ liệu có cập nhật gần đây không
-        List<WeatherHistory> recent = weatherHistoryRepository.findAll().stream()
-                .filter(w -> w.getRecordDate() != null && w.getRecordDate().equals(LocalDate.now().minusDays(1)))
-                .collect(Collectors.toList());
+        long recentCount = weatherHistoryRepository.countByRecordDate(LocalDate.now().minusDays(1));
+
+        status.put("dataUpToDate", recentCount > 0);
+        status.put("recentRecordsCount", recentCount);
 
-        status.put("dataUpToDate", !recent.isEmpty());
-        status.put("recentRecordsCount", recent.size());
+        // Hàng đợi ghi weather log (write-behind): số log đang chờ và số log bị bỏ
+        status.put("weatherLogPending", weatherLogService.getPendingCount());
+        status.put("weatherLogDropped", weatherLogService.getDroppedCount());
 
         return status;
     }
+
+    /**
+     * Lấy thống kê hit/miss/eviction của các cache Caffeine.
+     */
+    public List<Map<String, Object>> getCacheStats() {
+        List<Map<String, Object>> cacheStats = new ArrayList<>();
+
+        for (String cacheName : cacheManager.getCacheNames()) {
+            Cache cache = cacheManager.getCache(cacheName);
+            if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+                continue;
+            }
+
+            com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache = (com.github.benmanes.caffeine.cache.Cache<?, ?>) cache
+                    .getNativeCache();
+            CacheStats cs = nativeCache.stats();
+
+            Map<String, Object> stat = new HashMap<>();
+            stat.put("name", cacheName);
+            stat.put("size", nativeCache.estimatedSize());
+            stat.put("hitCount", cs.hitCount());
+            stat.put("missCount", cs.missCount());
+            stat.put("evictionCount", cs.evictionCount());
+            stat.put("hitRate", Math.round(cs.hitRate() * 1000) / 10.0);
+            cacheStats.add(stat);
+        }
+
+        return cacheStats;
+    }
 }
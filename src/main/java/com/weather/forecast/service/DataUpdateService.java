@@ -1,21 +1,34 @@
 package com.weather.forecast.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.weather.forecast.api.OpenMeteoAPI;
+import com.weather.forecast.model.ProvinceLocation;
 import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.model.dto.CollectionJob;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import com.weather.forecast.repository.WeatherHistoryJdbcRepository;
 import com.weather.forecast.repository.WeatherHistoryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * Service để cập nhật dữ liệu thời tiết lịch sử cho việc huấn luyện XGBoost.
@@ -24,14 +37,21 @@ import java.util.List;
 public class DataUpdateService {
 
     private final OpenMeteoAPI openMeteoAPI;
+    private final GeocodingService geocodingService;
     private final WeatherHistoryRepository weatherHistoryRepository;
-    private final ObjectMapper objectMapper;
+    private final WeatherHistoryJdbcRepository weatherHistoryJdbcRepository;
+    private final ProvinceCollectionEngine collectionEngine;
+    private final WeatherFeatureStore weatherFeatureStore;
+    private final WeatherRollupService weatherRollupService;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor dataCollectionExecutor;
+    private final int backfillChunkDays;
 
     // Số ngày lịch sử cần thu thập
     private static final int HISTORICAL_DAYS = 30;
 
     // Danh sách 63 tỉnh thành Việt Nam
-    private static final List<String> ALL_PROVINCES = Arrays.asList(
+    static final List<String> ALL_PROVINCES = Arrays.asList(
             "An Giang", "Bà Rịa - Vũng Tàu", "Bắc Giang", "Bắc Kạn", "Bạc Liêu",
             "Bắc Ninh", "Bến Tre", "Bình Định", "Bình Dương", "Bình Phước",
             "Bình Thuận", "Cà Mau", "Cần Thơ", "Cao Bằng", "Đà Nẵng",
@@ -48,11 +68,25 @@ public class DataUpdateService {
 
     @Autowired
     public DataUpdateService(OpenMeteoAPI openMeteoAPI,
+            GeocodingService geocodingService,
             WeatherHistoryRepository weatherHistoryRepository,
-            ObjectMapper objectMapper) {
+            WeatherHistoryJdbcRepository weatherHistoryJdbcRepository,
+            ProvinceCollectionEngine collectionEngine,
+            WeatherFeatureStore weatherFeatureStore,
+            WeatherRollupService weatherRollupService,
+            TransactionTemplate transactionTemplate,
+            @Qualifier("dataCollectionExecutor") Executor dataCollectionExecutor,
+            @Value("${data-collection.backfill.chunk-days:365}") int backfillChunkDays) {
         this.openMeteoAPI = openMeteoAPI;
+        this.geocodingService = geocodingService;
         this.weatherHistoryRepository = weatherHistoryRepository;
-        this.objectMapper = objectMapper;
+        this.weatherHistoryJdbcRepository = weatherHistoryJdbcRepository;
+        this.collectionEngine = collectionEngine;
+        this.weatherFeatureStore = weatherFeatureStore;
+        this.weatherRollupService = weatherRollupService;
+        this.transactionTemplate = transactionTemplate;
+        this.dataCollectionExecutor = dataCollectionExecutor;
+        this.backfillChunkDays = Math.max(1, backfillChunkDays);
     }
 
     public List<String> getAllProvinces() {
@@ -61,26 +95,82 @@ public class DataUpdateService {
 
     /**
      * Thu thập dữ liệu thời tiết LỊCH SỬ (30 ngày) cho một tỉnh từ Open-Meteo
-     * Archive API.
+     * Archive API. Chỉ lấy phần còn thiếu sau watermark (ngày mới nhất đã có
+     * trong database), nên các lần chạy hằng ngày chỉ tải vài ngày cuối.
      */
-    @Transactional
     public int collectHistoricalWeather(String province) throws IOException, InterruptedException {
         System.out.println("Collecting 30-day historical data for: " + province);
 
-        // 1. Lấy tọa độ
-        String geoJson = openMeteoAPI.getCoordinatesForCity(province);
-        JsonNode geoResults = objectMapper.readTree(geoJson).path("results");
-        if (!geoResults.isArray() || geoResults.size() == 0) {
-            throw new IOException("Could not find coordinates for province: " + province);
+        // 1. Tính khoảng thời gian (30 ngày trước đến hôm qua - Archive API không có dữ
+        // liệu hôm nay), bắt đầu sau watermark nếu đã có dữ liệu
+        LocalDate endDate = LocalDate.now().minusDays(1);
+        LocalDate startDate = endDate.minusDays(HISTORICAL_DAYS - 1);
+
+        LocalDate watermark = weatherHistoryRepository.findLatestRecordDate(province, endDate);
+        if (watermark != null && !watermark.isBefore(startDate)) {
+            startDate = watermark.plusDays(1);
+        }
+        if (startDate.isAfter(endDate)) {
+            System.out.println("  " + province + " is up to date (watermark " + watermark + ")");
+            return 0;
         }
 
-        double lat = geoResults.get(0).path("latitude").asDouble();
-        double lon = geoResults.get(0).path("longitude").asDouble();
+        // 2. Lấy tọa độ (từ geocode index, chỉ gọi API nếu chưa có)
+        ProvinceLocation location = geocodingService.findLocation(province)
+                .orElseThrow(() -> new IOException("Could not find coordinates for province: " + province));
 
-        // 2. Tính khoảng thời gian (30 ngày trước đến hôm qua - Archive API không có dữ
-        // liệu hôm nay)
-        LocalDate endDate = LocalDate.now().minusDays(1);
-        LocalDate startDate = endDate.minusDays(HISTORICAL_DAYS - 1);
+        int savedCount = fetchAndStoreArchiveRange(province, location, startDate, endDate);
+        System.out.println("  Saved " + savedCount + " new records for " + province);
+        return savedCount;
+    }
+
+    /**
+     * Mở rộng dữ liệu lịch sử của một tỉnh về quá khứ đến {@code targetStart},
+     * mỗi lần một chunk {@code backfillChunkDays} ngày, đi lùi từ ngày cũ nhất
+     * đã có. Mỗi chunk được ghi ngay nên nếu bị dừng giữa chừng, lần chạy sau sẽ
+     * tiếp tục từ ngày cũ nhất hiện có.
+     *
+     * @return Số bản ghi mới đã lưu
+     */
+    public int backfillHistoricalWeather(String province, LocalDate targetStart)
+            throws IOException, InterruptedException {
+        LocalDate earliest = weatherHistoryRepository.findEarliestRecordDate(province);
+        LocalDate chunkEnd = earliest != null ? earliest.minusDays(1) : LocalDate.now().minusDays(1);
+        if (chunkEnd.isBefore(targetStart)) {
+            return 0;
+        }
+
+        ProvinceLocation location = geocodingService.findLocation(province)
+                .orElseThrow(() -> new IOException("Could not find coordinates for province: " + province));
+
+        int savedCount = 0;
+        boolean firstChunk = true;
+        while (!chunkEnd.isBefore(targetStart)) {
+            LocalDate chunkStart = chunkEnd.minusDays(backfillChunkDays - 1);
+            if (chunkStart.isBefore(targetStart)) {
+                chunkStart = targetStart;
+            }
+            // Chunk đầu đã lấy token từ engine, các chunk sau phải xin thêm
+            if (!firstChunk) {
+                collectionEngine.throttle();
+            }
+            firstChunk = false;
+
+            savedCount += fetchAndStoreArchiveRange(province, location, chunkStart, chunkEnd);
+            chunkEnd = chunkStart.minusDays(1);
+        }
+
+        System.out.println("  Backfilled " + savedCount + " records for " + province + " back to " + targetStart);
+        return savedCount;
+    }
+
+    /**
+     * Gọi Archive API cho khoảng [startDate, endDate] và ghi các ngày chưa có.
+     */
+    private int fetchAndStoreArchiveRange(String province, ProvinceLocation location,
+            LocalDate startDate, LocalDate endDate) throws IOException, InterruptedException {
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
 
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
         String startStr = startDate.format(formatter);
@@ -88,32 +178,25 @@ public class DataUpdateService {
 
         System.out.println("  Fetching data from " + startStr + " to " + endStr);
 
-        // 3. Gọi Archive API
-        String historicalJson = openMeteoAPI.getHistoricalWeather(lat, lon, startStr, endStr);
-        JsonNode root = objectMapper.readTree(historicalJson);
-        JsonNode dailyData = root.path("daily");
+        // Gọi Archive API (response được parse thẳng vào các cột primitive)
+        ComprehensiveWeatherReport.DailyData daily = openMeteoAPI
+                .getHistoricalWeather(lat, lon, startStr, endStr).getDaily();
 
-        if (!dailyData.has("time") || !dailyData.path("time").isArray()) {
+        int days = daily.size();
+        if (days == 0) {
             throw new IOException("Invalid historical data format for " + province);
         }
 
-        // 4. Parse và lưu từng ngày
-        JsonNode times = dailyData.path("time");
-        JsonNode tempMaxArr = dailyData.path("temperature_2m_max");
-        JsonNode tempMinArr = dailyData.path("temperature_2m_min");
-        JsonNode precipArr = dailyData.path("precipitation_sum");
-        JsonNode weatherCodeArr = dailyData.path("weather_code");
-        JsonNode windSpeedArr = dailyData.path("wind_speed_10m_max");
-
-        int savedCount = 0;
+        List<WeatherHistory> records = new ArrayList<>(days);
 
-        for (int i = 0; i < times.size(); i++) {
-            LocalDate recordDate = LocalDate.parse(times.get(i).asText());
-
-            // Kiểm tra xem đã có dữ liệu chưa
-            if (weatherHistoryRepository.existsByProvinceAndRecordDate(province, recordDate)) {
-                continue; // Skip nếu đã có
-            }
+        // Parse từng ngày (NaN / MISSING_INT = API trả về null)
+        for (int i = 0; i < days; i++) {
+            LocalDate recordDate = daily.getTimeAxis().getDate(i);
+            double tempMax = daily.getTemperatureMax(i);
+            double tempMin = daily.getTemperatureMin(i);
+            double precipitation = daily.getPrecipitationSum(i);
+            int weatherCode = daily.getWeatherCode(i);
+            double windSpeed = daily.getWindSpeed10mMax(i);
 
             WeatherHistory history = new WeatherHistory();
             history.setProvince(province);
@@ -123,23 +206,22 @@ public class DataUpdateService {
             history.setRecordTime(LocalTime.NOON); // Dữ liệu daily, set giờ trưa
 
             // Set values từ API
-            if (tempMaxArr.has(i) && !tempMaxArr.get(i).isNull()) {
-                history.setTempMax(tempMaxArr.get(i).asDouble());
+            if (!Double.isNaN(tempMax)) {
+                history.setTempMax(tempMax);
             }
-            if (tempMinArr.has(i) && !tempMinArr.get(i).isNull()) {
-                history.setTempMin(tempMinArr.get(i).asDouble());
+            if (!Double.isNaN(tempMin)) {
+                history.setTempMin(tempMin);
             }
-            if (precipArr.has(i) && !precipArr.get(i).isNull()) {
-                history.setPrecipitation(precipArr.get(i).asDouble());
+            if (!Double.isNaN(precipitation)) {
+                history.setPrecipitation(precipitation);
                 // Tính xác suất mưa từ lượng mưa (đơn giản: có mưa > 0.1mm = 100%, không = 0%)
-                double precip = precipArr.get(i).asDouble();
-                history.setPrecipitationProbability(precip > 0.1 ? 1.0 : 0.0);
+                history.setPrecipitationProbability(precipitation > 0.1 ? 1.0 : 0.0);
             }
-            if (weatherCodeArr.has(i) && !weatherCodeArr.get(i).isNull()) {
-                history.setWeatherCode(weatherCodeArr.get(i).asInt());
+            if (weatherCode != ComprehensiveWeatherReport.MISSING_INT) {
+                history.setWeatherCode(weatherCode);
             }
-            if (windSpeedArr.has(i) && !windSpeedArr.get(i).isNull()) {
-                history.setWindSpeed(windSpeedArr.get(i).asDouble());
+            if (!Double.isNaN(windSpeed)) {
+                history.setWindSpeed(windSpeed);
             }
 
             // Tính nhiệt độ hiện tại (trung bình của max và min)
@@ -148,81 +230,39 @@ public class DataUpdateService {
             }
 
             history.setRecordedAt(LocalDateTime.now());
-
-            weatherHistoryRepository.save(history);
-            savedCount++;
+            records.add(history);
         }
 
-        System.out.println("  Saved " + savedCount + " new records for " + province);
-        return savedCount;
+        // Ghi cả khoảng ngày bằng một JDBC batch, ngày đã có được bỏ qua (ON CONFLICT)
+        return insertAndRecordFeatures(records);
     }
 
     /**
      * Thu thập dữ liệu thời tiết HIỆN TẠI (ngày hôm nay) cho một tỉnh.
      */
-    @Transactional
     public void collectTodayWeather(String province) throws IOException, InterruptedException {
         System.out.println("Collecting today's data for: " + province);
 
-        // 1. Lấy tọa độ
-        String geoJson = openMeteoAPI.getCoordinatesForCity(province);
-        JsonNode geoResults = objectMapper.readTree(geoJson).path("results");
-        if (!geoResults.isArray() || geoResults.size() == 0) {
-            throw new IOException("Could not find coordinates for province: " + province);
-        }
-
-        double lat = geoResults.get(0).path("latitude").asDouble();
-        double lon = geoResults.get(0).path("longitude").asDouble();
+        // 1. Lấy tọa độ (từ geocode index, chỉ gọi API nếu chưa có)
+        ProvinceLocation location = geocodingService.findLocation(province)
+                .orElseThrow(() -> new IOException("Could not find coordinates for province: " + province));
 
-        // 2. Lấy dữ liệu forecast (có dữ liệu hôm nay)
-        String weatherJson = openMeteoAPI.getWeatherForecast(lat, lon);
-        JsonNode root = objectMapper.readTree(weatherJson);
-        JsonNode currentWeather = root.path("current");
-        JsonNode dailyData = root.path("daily");
+        double lat = location.getLatitude();
+        double lon = location.getLongitude();
 
         LocalDate today = LocalDate.now();
 
-        // 3. Kiểm tra xem đã có dữ liệu cho ngày hôm nay chưa
+        // 2. Kiểm tra xem đã có dữ liệu cho ngày hôm nay chưa (trước khi gọi API)
         if (weatherHistoryRepository.existsByProvinceAndRecordDate(province, today)) {
             System.out.println("  Data for " + province + " on " + today + " already exists. Skipping.");
             return;
         }
 
-        // 4. Tạo entity WeatherHistory
-        WeatherHistory history = new WeatherHistory();
-        history.setProvince(province);
-        history.setLatitude(lat);
-        history.setLongitude(lon);
-        history.setRecordDate(today);
-        history.setRecordTime(LocalTime.now());
-
-        // Current weather data
-        history.setTempCurrent(currentWeather.path("temperature_2m").asDouble());
-        history.setHumidity(currentWeather.path("relative_humidity_2m").asDouble());
-        history.setWindSpeed(currentWeather.path("wind_speed_10m").asDouble());
-        history.setPressure(currentWeather.path("surface_pressure").asDouble());
-        history.setWeatherCode(currentWeather.path("weather_code").asInt());
+        // 3. Lấy dữ liệu forecast (có dữ liệu hôm nay)
+        ComprehensiveWeatherReport report = openMeteoAPI.getWeatherForecast(lat, lon);
 
-        // Daily data (today's forecast - index 0)
-        if (dailyData.has("temperature_2m_max") && dailyData.path("temperature_2m_max").isArray()) {
-            history.setTempMax(dailyData.path("temperature_2m_max").get(0).asDouble());
-        }
-        if (dailyData.has("temperature_2m_min") && dailyData.path("temperature_2m_min").isArray()) {
-            history.setTempMin(dailyData.path("temperature_2m_min").get(0).asDouble());
-        }
-        if (dailyData.has("precipitation_probability_max")
-                && dailyData.path("precipitation_probability_max").isArray()) {
-            history.setPrecipitationProbability(
-                    dailyData.path("precipitation_probability_max").get(0).asDouble() / 100.0);
-        }
-        if (dailyData.has("precipitation_sum") && dailyData.path("precipitation_sum").isArray()) {
-            history.setPrecipitation(dailyData.path("precipitation_sum").get(0).asDouble());
-        }
-
-        history.setRecordedAt(LocalDateTime.now());
-
-        // 5. Lưu vào database
-        weatherHistoryRepository.save(history);
+        // 4. Lưu vào database (cùng đường ghi với batch: history + rollup trong một transaction)
+        insertAndRecord(Collections.singletonList(buildTodayHistory(province, lat, lon, today, report)));
         System.out.println("  Saved today's data for " + province);
     }
 
@@ -232,52 +272,242 @@ public class DataUpdateService {
      * @return Tổng số bản ghi đã lưu.
      */
     public int collectAllProvincesHistoricalData() {
-        int totalSaved = 0;
-        int successCount = 0;
-        int failCount = 0;
+        return startHistoricalCollection().join().getRecordsSaved();
+    }
 
+    /**
+     * Bắt đầu thu thập dữ liệu lịch sử cho 63 tỉnh trên worker pool (không chặn
+     * thread gọi). Tiến độ xem qua {@link #getCurrentCollection()}.
+     *
+     * @throws IllegalStateException nếu đang có lượt thu thập khác chạy
+     */
+    public CompletableFuture<CollectionJob> startHistoricalCollection() {
         System.out.println("\n=== COLLECTING 30-DAY HISTORICAL DATA FOR ALL 63 PROVINCES ===\n");
 
-        for (String province : ALL_PROVINCES) {
-            try {
-                int saved = collectHistoricalWeather(province);
-                totalSaved += saved;
-                successCount++;
-                // Delay để tránh rate limit
-                Thread.sleep(200);
-            } catch (Exception e) {
-                System.err.println("Failed to collect historical data for " + province + ": " + e.getMessage());
-                failCount++;
-            }
-        }
+        CollectionJob job = collectionEngine.begin("historical", ALL_PROVINCES.size());
+        return collectionEngine.submit(job, ALL_PROVINCES, this::collectHistoricalWeather);
+    }
 
-        System.out.println("\n=== COLLECTION COMPLETE ===");
-        System.out.println("Provinces: " + successCount + " success, " + failCount + " failed");
-        System.out.println("Total new records saved: " + totalSaved);
+    /**
+     * Bắt đầu mở rộng dữ liệu lịch sử của 63 tỉnh về quá khứ đến {@code targetStart}
+     * (không chặn thread gọi). Có thể chạy lại nhiều lần, mỗi lần tiếp tục từ ngày
+     * cũ nhất đã có của từng tỉnh.
+     *
+     * @throws IllegalStateException nếu đang có lượt thu thập khác chạy
+     */
+    public CompletableFuture<CollectionJob> startHistoricalBackfill(LocalDate targetStart) {
+        System.out.println("\n=== BACKFILLING HISTORICAL DATA BACK TO " + targetStart + " ===\n");
 
-        return totalSaved;
+        CollectionJob job = collectionEngine.begin("backfill", ALL_PROVINCES.size());
+        return collectionEngine.submit(job, ALL_PROVINCES, province -> backfillHistoricalWeather(province, targetStart));
     }
 
     /**
      * Thu thập dữ liệu CHỈ NGÀY HÔM NAY cho tất cả 63 tỉnh thành.
+     *
+     * @return Số tỉnh đã có dữ liệu hôm nay sau khi thu thập.
      */
     public int collectAllProvincesTodayData() {
-        int successCount = 0;
-        int failCount = 0;
+        return startTodayCollection().join().getSucceeded();
+    }
+
+    /**
+     * Bắt đầu thu thập dữ liệu hôm nay cho 63 tỉnh (không chặn thread gọi).
+     * Các tỉnh đã có dữ liệu được lọc bằng một truy vấn duy nhất, phần còn lại
+     * được lấy qua API batch của Open-Meteo (nhiều tọa độ trong một request).
+     * Tỉnh nào batch không trả về được thu thập lại từng tỉnh qua engine (có retry).
+     *
+     * @throws IllegalStateException nếu đang có lượt thu thập khác chạy
+     */
+    public CompletableFuture<CollectionJob> startTodayCollection() {
+        CollectionJob job = collectionEngine.begin("today", ALL_PROVINCES.size());
+        return CompletableFuture.supplyAsync(() -> collectTodayBatch(job), dataCollectionExecutor)
+                .thenCompose(remaining -> collectionEngine.submit(job, remaining, province -> {
+                    collectTodayWeather(province);
+                    return 1;
+                }))
+                // Batch lỗi thì engine không chạy, vẫn phải đánh dấu job kết thúc
+                .whenComplete((result, ex) -> job.markFinished());
+    }
+
+    /**
+     * Lấy dữ liệu hôm nay cho các tỉnh chưa có qua API batch và lưu vào database.
+     *
+     * @return Các tỉnh chưa thu thập được, cần chạy lại từng tỉnh
+     */
+    private List<String> collectTodayBatch(CollectionJob job) {
+        LocalDate today = LocalDate.now();
+        Set<String> existing = new HashSet<>(weatherHistoryRepository.findProvincesByRecordDate(today));
 
+        // 1. Lấy tọa độ cho các tỉnh chưa có dữ liệu hôm nay
+        List<String> remaining = new ArrayList<>();
+        List<String> pending = new ArrayList<>();
+        List<ProvinceLocation> locations = new ArrayList<>();
         for (String province : ALL_PROVINCES) {
+            if (existing.contains(province)) {
+                job.recordSuccess(province, 0, 0);
+                continue;
+            }
             try {
-                collectTodayWeather(province);
-                successCount++;
-                Thread.sleep(100);
+                Optional<ProvinceLocation> location = geocodingService.findLocation(province);
+                if (location.isPresent()) {
+                    pending.add(province);
+                    locations.add(location.get());
+                } else {
+                    remaining.add(province);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                remaining.add(province);
             } catch (Exception e) {
-                System.err.println("Failed to collect today's data for " + province + ": " + e.getMessage());
-                failCount++;
+                remaining.add(province);
             }
         }
 
-        System.out.println("Today collection: " + successCount + " success, " + failCount + " failed");
-        return successCount;
+        if (pending.isEmpty()) {
+            return remaining;
+        }
+
+        // 2. Gọi API batch, kết quả của từng tỉnh được gom lại theo chỉ số
+        double[] latitudes = new double[pending.size()];
+        double[] longitudes = new double[pending.size()];
+        for (int i = 0; i < pending.size(); i++) {
+            latitudes[i] = locations.get(i).getLatitude();
+            longitudes[i] = locations.get(i).getLongitude();
+        }
+
+        Map<Integer, ComprehensiveWeatherReport> reports = new ConcurrentHashMap<>();
+        try {
+            // Mỗi chunk là một request Open-Meteo, lấy token cho từng chunk như mọi request khác
+            int chunkSize = openMeteoAPI.getBatchChunkSize();
+            for (int requests = (pending.size() + chunkSize - 1) / chunkSize; requests > 0; requests--) {
+                collectionEngine.throttle();
+            }
+            openMeteoAPI.getWeatherForecastBatch(latitudes, longitudes, reports::put);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.err.println("Batch forecast request interrupted: " + e.getMessage());
+        } catch (IOException e) {
+            // Một số chunk có thể đã thành công, vẫn lưu phần đã nhận được
+            System.err.println("Batch forecast request failed: " + e.getMessage());
+        }
+
+        // 3. Lưu vào database bằng một JDBC batch, tỉnh nào thiếu dữ liệu thì chạy lại riêng
+        List<String> received = new ArrayList<>();
+        List<WeatherHistory> records = new ArrayList<>();
+        for (int i = 0; i < pending.size(); i++) {
+            String province = pending.get(i);
+            ComprehensiveWeatherReport report = reports.get(i);
+            if (report == null || !report.hasDailyData()) {
+                remaining.add(province);
+                continue;
+            }
+            received.add(province);
+            records.add(buildTodayHistory(province, latitudes[i], longitudes[i], today, report));
+        }
+
+        try {
+            int[] inserted = insertAndRecord(records);
+            for (int i = 0; i < received.size(); i++) {
+                job.recordSuccess(received.get(i), 1, inserted[i]);
+            }
+        } catch (Exception e) {
+            System.err.println("Failed to save today's batch: " + e.getMessage());
+            remaining.addAll(received);
+        }
+
+        if (!remaining.isEmpty()) {
+            System.out.println("Batch missed " + remaining.size() + " provinces, collecting them individually");
+        }
+        return remaining;
+    }
+
+    /**
+     * Ghi các bản ghi bằng JDBC batch và cập nhật feature store với những dòng được chèn mới.
+     *
+     * @return Số dòng được chèn mới
+     */
+    private int insertAndRecordFeatures(List<WeatherHistory> records) {
+        int total = 0;
+        for (int count : insertAndRecord(records)) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Ghi các bản ghi bằng JDBC batch; những dòng được chèn mới được cộng vào rollup
+     * (cùng transaction) và cập nhật vào feature store.
+     *
+     * @return Số dòng được chèn cho từng bản ghi, cùng thứ tự với {@code records}
+     */
+    private int[] insertAndRecord(List<WeatherHistory> records) {
+        List<WeatherHistory> newRecords = new ArrayList<>(records.size());
+        int[] inserted = transactionTemplate.execute(status -> {
+            int[] counts = weatherHistoryJdbcRepository.insertIgnoreExisting(records);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] > 0) {
+                    newRecords.add(records.get(i));
+                }
+            }
+            weatherRollupService.record(newRecords);
+            return counts;
+        });
+
+        for (WeatherHistory record : newRecords) {
+            weatherFeatureStore.record(record);
+        }
+        return inserted;
+    }
+
+    /**
+     * Lượt thu thập gần nhất (đang chạy hoặc đã xong), có thể null.
+     */
+    public CollectionJob getCurrentCollection() {
+        return collectionEngine.getCurrentJob();
+    }
+
+    /**
+     * Tạo bản ghi WeatherHistory ngày hôm nay từ dữ liệu current và daily (index 0)
+     * của forecast.
+     */
+    private WeatherHistory buildTodayHistory(String province, double lat, double lon, LocalDate today,
+            ComprehensiveWeatherReport report) {
+        WeatherHistory history = new WeatherHistory();
+        history.setProvince(province);
+        history.setLatitude(lat);
+        history.setLongitude(lon);
+        history.setRecordDate(today);
+        history.setRecordTime(LocalTime.now());
+
+        // Current weather data
+        ComprehensiveWeatherReport.CurrentWeather current = report.getCurrent();
+        if (current != null) {
+            history.setTempCurrent(current.getTemperature());
+            history.setHumidity((double) current.getHumidity());
+            history.setWindSpeed(current.getWindSpeed());
+            history.setPressure(current.getSurfacePressure());
+            history.setWeatherCode(current.getWeatherCode());
+        }
+
+        // Daily data (today's forecast - index 0)
+        ComprehensiveWeatherReport.DailyData daily = report.getDaily();
+        if (daily != null) {
+            history.setTempMax(orNull(daily.getTemperatureMax(0)));
+            history.setTempMin(orNull(daily.getTemperatureMin(0)));
+            int precipProbability = daily.getPrecipitationProbabilityMax(0);
+            if (precipProbability != ComprehensiveWeatherReport.MISSING_INT) {
+                history.setPrecipitationProbability(precipProbability / 100.0);
+            }
+            history.setPrecipitation(orNull(daily.getPrecipitationSum(0)));
+        }
+
+        history.setRecordedAt(LocalDateTime.now());
+        return history;
+    }
+
+    private static Double orNull(double value) {
+        return Double.isNaN(value) ? null : value;
     }
 
     /**
@@ -0,0 +1,217 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.ai.DailyForecastModelGroup;
+import com.weather.forecast.model.DailyForecast;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Dự báo 7 ngày bằng XGBoost, tính sẵn cho tất cả tỉnh/thành.
+ * - Sau khi thu thập dữ liệu hằng ngày (và khi khởi động), cả 63 tỉnh được chấm
+ * điểm trong một batch duy nhất rồi lưu vào prediction_results và read model trong bộ nhớ
+ * - Request của người dùng chỉ tra read model; tỉnh chưa có mới tính tại chỗ
+ * - Features lấy từ WeatherFeatureStore, không truy vấn weather_history khi dự báo
+ */
+@Service
+public class ForecastPrecomputeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForecastPrecomputeService.class);
+
+    private static final int FEATURE_COUNT = WeatherFeatureStore.FEATURE_COUNT;
+
+    // Hôm nay + 7 ngày tiếp theo
+    private static final int FORECAST_DAYS = 8;
+
+    private final WeatherFeatureStore weatherFeatureStore;
+    private final PredictionResultService predictionResultService;
+    private final DailyForecastModelGroup dailyForecastModelGroup;
+
+    // Read model: tỉnh -> dự báo đã tính trong ngày
+    private final ConcurrentMap<String, PrecomputedForecast> readModel = new ConcurrentHashMap<>();
+
+    private static class PrecomputedForecast {
+        private final LocalDate computedOn;
+        private final List<DailyForecast> days;
+
+        PrecomputedForecast(LocalDate computedOn, List<DailyForecast> days) {
+            this.computedOn = computedOn;
+            this.days = Collections.unmodifiableList(days);
+        }
+    }
+
+    @Autowired
+    public ForecastPrecomputeService(WeatherFeatureStore weatherFeatureStore,
+            PredictionResultService predictionResultService,
+            DailyForecastModelGroup dailyForecastModelGroup) {
+        this.weatherFeatureStore = weatherFeatureStore;
+        this.predictionResultService = predictionResultService;
+        this.dailyForecastModelGroup = dailyForecastModelGroup;
+    }
+
+    /**
+     * Dự báo đã tính sẵn hôm nay cho một tỉnh, hoặc danh sách rỗng nếu chưa có.
+     */
+    public List<DailyForecast> getForecast(String city) {
+        PrecomputedForecast precomputed = readModel.get(city);
+        if (precomputed == null || !precomputed.computedOn.equals(LocalDate.now())) {
+            return Collections.emptyList();
+        }
+        return precomputed.days;
+    }
+
+    /**
+     * Tính dự báo cho một tỉnh ngay tại request (khi read model chưa có), đưa vào
+     * read model và lưu prediction để lần sau chỉ cần tra cứu.
+     */
+    public List<DailyForecast> computeForecast(String city) throws XGBoostError {
+        LocalDate today = LocalDate.now();
+        Map<String, List<DailyForecast>> forecasts = predict(Collections.singletonList(city), today);
+
+        List<DailyForecast> forecast = forecasts.get(city);
+        if (forecast == null) {
+            logger.info("Not enough historical data for {} (need {}, got {})", city,
+                    WeatherFeatureStore.PAST_DAYS_FOR_FEATURES, weatherFeatureStore.getHistoryDays(city));
+            return Collections.emptyList();
+        }
+        readModel.put(city, new PrecomputedForecast(today, forecast));
+        predictionResultService.savePredictions(city, forecast);
+        return forecast;
+    }
+
+    /**
+     * Nạp read model khi ứng dụng khởi động (chạy nền).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void precomputeOnStartup() {
+        try {
+            precomputeAll();
+        } catch (Exception e) {
+            logger.warn("Initial forecast precompute failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Tính dự báo cho tất cả tỉnh có đủ lịch sử trong một batch, lưu vào
+     * prediction_results và thay thế read model.
+     *
+     * @return Số tỉnh đã được tính
+     */
+    public synchronized int precomputeAll() throws XGBoostError {
+        LocalDate today = LocalDate.now();
+
+        // 1. Các tỉnh đã đủ lịch sử trong feature store
+        List<String> provinces = weatherFeatureStore.getReadyProvinces();
+        if (provinces.isEmpty()) {
+            logger.info("No province has enough history for forecast precompute");
+            return 0;
+        }
+
+        // 2. Chấm điểm tất cả tỉnh x 8 ngày trong một lần gọi model group
+        long start = System.currentTimeMillis();
+        Map<String, List<DailyForecast>> forecasts = predict(provinces, today);
+
+        // 3. Cập nhật read model và lưu prediction_results
+        forecasts.forEach((province, days) -> readModel.put(province, new PrecomputedForecast(today, days)));
+        int saved = predictionResultService.savePredictionsBatch(forecasts);
+
+        logger.info("Precomputed forecasts for {} provinces in {} ms ({} new prediction rows)",
+                forecasts.size(), System.currentTimeMillis() - start, saved);
+        return forecasts.size();
+    }
+
+    /**
+     * Dự báo 8 ngày cho nhiều tỉnh: một feature matrix chung, một lần chấm điểm.
+     * Tỉnh chưa đủ lịch sử trong feature store không có trong kết quả.
+     */
+    private Map<String, List<DailyForecast>> predict(List<String> provinces, LocalDate today)
+            throws XGBoostError {
+        float[] features = new float[provinces.size() * FORECAST_DAYS * FEATURE_COUNT];
+
+        List<String> scored = new ArrayList<>(provinces.size());
+        int row = 0;
+        for (String province : provinces) {
+            boolean ready = true;
+            for (int dayOffset = 0; dayOffset < FORECAST_DAYS && ready; dayOffset++) {
+                ready = weatherFeatureStore.writeFeatures(province, today.plusDays(dayOffset), features,
+                        (row + dayOffset) * FEATURE_COUNT);
+            }
+            if (ready) {
+                scored.add(province);
+                row += FORECAST_DAYS;
+            }
+        }
+        if (scored.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        int rows = row;
+        if (features.length != rows * FEATURE_COUNT) {
+            features = Arrays.copyOf(features, rows * FEATURE_COUNT);
+        }
+
+        // Cả 3 model (max/min/mưa) dùng chung một feature matrix
+        DailyForecastModelGroup.Predictions predicted = dailyForecastModelGroup.predictBatch(features, rows,
+                FEATURE_COUNT);
+        float[] predictedMaxTemps = predicted.getMaxTemp();
+        float[] predictedMinTemps = predicted.getMinTemp();
+        float[] predictedRainProbs = predicted.getRainProb();
+
+        Map<String, List<DailyForecast>> result = new LinkedHashMap<>();
+        row = 0;
+        for (String province : scored) {
+            List<DailyForecast> predictions = new ArrayList<>(FORECAST_DAYS);
+            for (int dayOffset = 0; dayOffset < FORECAST_DAYS; dayOffset++, row++) {
+                // Clamp rain probability to [0, 1]
+                float predictedRainProb = Math.max(0, Math.min(1, predictedRainProbs[row]));
+
+                // Map rain probability to weather code
+                int weatherCode = mapRainProbToWeatherCode(predictedRainProb);
+
+                predictions.add(new DailyForecast(
+                        today.plusDays(dayOffset),
+                        predictedMaxTemps[row],
+                        predictedMinTemps[row],
+                        predictedRainProb,
+                        weatherCode));
+            }
+            result.put(province, predictions);
+        }
+        return result;
+    }
+
+    /**
+     * Map xác suất mưa sang weather code.
+     */
+    private int mapRainProbToWeatherCode(float rainProb) {
+        if (rainProb < 0.1)
+            return 0; // Clear sky
+        if (rainProb < 0.2)
+            return 1; // Mainly clear
+        if (rainProb < 0.3)
+            return 2; // Partly cloudy
+        if (rainProb < 0.4)
+            return 3; // Overcast
+        if (rainProb < 0.5)
+            return 61; // Rain: Slight
+        if (rainProb < 0.7)
+            return 63; // Rain: Moderate
+        return 65; // Rain: Heavy
+    }
+}
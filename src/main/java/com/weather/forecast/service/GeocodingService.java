@@ -0,0 +1,149 @@
+package com.weather.forecast.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.weather.forecast.api.OpenMeteoAPI;
+import com.weather.forecast.model.ProvinceLocation;
+import com.weather.forecast.repository.ProvinceLocationRepository;
+import com.weather.forecast.util.ProvinceNameUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Service tra cứu tọa độ tỉnh/thành.
+ * Thứ tự tra cứu: index trong bộ nhớ -> bảng province_locations -> Geocoding API.
+ * Kết quả từ API được lưu lại vào database nên mỗi tỉnh chỉ cần geocode một lần.
+ */
+@Service
+public class GeocodingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeocodingService.class);
+
+    private final OpenMeteoAPI openMeteoAPI;
+    private final ProvinceLocationRepository provinceLocationRepository;
+    private final ObjectMapper objectMapper;
+
+    // Index trong bộ nhớ, key = tên đã chuẩn hoá
+    private final ConcurrentMap<String, ProvinceLocation> locationIndex = new ConcurrentHashMap<>();
+    private volatile boolean indexLoaded = false;
+
+    @Autowired
+    public GeocodingService(OpenMeteoAPI openMeteoAPI,
+            ProvinceLocationRepository provinceLocationRepository,
+            ObjectMapper objectMapper) {
+        this.openMeteoAPI = openMeteoAPI;
+        this.provinceLocationRepository = provinceLocationRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Lấy tọa độ của một tỉnh/thành. Chỉ gọi Geocoding API khi chưa có trong
+     * index và database.
+     *
+     * @param city Tên tỉnh/thành (có dấu hoặc không dấu)
+     * @return Tọa độ, hoặc Optional.empty() nếu API không tìm thấy
+     * @throws IOException          nếu gọi Geocoding API thất bại
+     * @throws InterruptedException nếu bị ngắt khi chờ API
+     */
+    public Optional<ProvinceLocation> findLocation(String city) throws IOException, InterruptedException {
+        String lookupKey = ProvinceNameUtil.normalize(city);
+        if (lookupKey.isEmpty()) {
+            return Optional.empty();
+        }
+
+        ensureIndexLoaded();
+        ProvinceLocation cached = locationIndex.get(lookupKey);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        Optional<ProvinceLocation> stored = provinceLocationRepository.findByLookupKey(lookupKey);
+        if (stored.isPresent()) {
+            locationIndex.put(lookupKey, stored.get());
+            return stored;
+        }
+
+        return geocodeAndStore(city, lookupKey);
+    }
+
+    /**
+     * Nạp sẵn tọa độ của 63 tỉnh/thành khi ứng dụng khởi động (chạy nền).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadProvinces() {
+        int loaded = 0;
+        for (String province : DataUpdateService.ALL_PROVINCES) {
+            try {
+                if (findLocation(province).isPresent()) {
+                    loaded++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                logger.warn("Không thể geocode {}: {}", province, e.getMessage());
+            }
+        }
+        logger.info("✓ Geocode index: {}/{} tỉnh/thành", loaded, DataUpdateService.ALL_PROVINCES.size());
+    }
+
+    /**
+     * Số tọa độ đang có trong index.
+     */
+    public int getIndexSize() {
+        return locationIndex.size();
+    }
+
+    private void ensureIndexLoaded() {
+        if (indexLoaded) {
+            return;
+        }
+        synchronized (this) {
+            if (indexLoaded) {
+                return;
+            }
+            for (ProvinceLocation location : provinceLocationRepository.findAll()) {
+                locationIndex.put(location.getLookupKey(), location);
+            }
+            indexLoaded = true;
+        }
+    }
+
+    private Optional<ProvinceLocation> geocodeAndStore(String city, String lookupKey)
+            throws IOException, InterruptedException {
+        String geoJson = openMeteoAPI.getCoordinatesForCity(city);
+        JsonNode resultsNode = objectMapper.readTree(geoJson).path("results");
+        if (!resultsNode.isArray() || resultsNode.size() == 0) {
+            logger.warn("Could not find coordinates for city: {}", city);
+            return Optional.empty();
+        }
+
+        JsonNode firstResult = resultsNode.get(0);
+        ProvinceLocation location = new ProvinceLocation(lookupKey, city,
+                firstResult.path("latitude").asDouble(),
+                firstResult.path("longitude").asDouble());
+        location.setResolvedName(firstResult.path("name").asText(null));
+
+        try {
+            location = provinceLocationRepository.save(location);
+        } catch (Exception e) {
+            // Có thể request khác vừa lưu cùng key (unique constraint) - dùng bản trong DB
+            logger.debug("Không thể lưu tọa độ cho {}: {}", city, e.getMessage());
+            location = provinceLocationRepository.findByLookupKey(lookupKey).orElse(location);
+        }
+
+        ProvinceLocation existing = locationIndex.putIfAbsent(lookupKey, location);
+        return Optional.of(existing != null ? existing : location);
+    }
+}
@@ -0,0 +1,203 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.ai.ForecastModel;
+import com.weather.forecast.model.HourlyForecast;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import ml.dmlc.xgboost4j.java.XGBoostError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dự báo nhiệt độ theo giờ bằng hourly XGBoost model.
+ * - Features của từng giờ được dựng từ chuỗi hourly của weather report (đã cache)
+ * - Tất cả các giờ trong report (24-192) được chấm điểm trong một lần gọi model,
+ * kết quả của cả report được cache theo tỉnh, mỗi request chỉ cắt ra các giờ của một ngày
+ * - Kết quả cache chỉ dùng lại khi vẫn là report và version model đã dùng để tính
+ */
+@Service
+public class HourlyForecastService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HourlyForecastService.class);
+
+    /**
+     * Thứ tự features của hourly model, phải trùng với HOURLY_FEATURE_COLUMNS trong
+     * train_model.py. Model có số feature khác thì không được dùng.
+     */
+    public static final String[] FEATURE_NAMES = {
+            "temperature_2m", "hour", "day_of_year", "latitude", "longitude",
+            "precipitation_probability", "wind_speed_10m" };
+
+    private static final String CACHE_NAME = "hourlyForecasts";
+
+    private final ForecastModel hourlyForecastModel;
+    private final CacheManager cacheManager;
+
+    // Độ lệch tối đa (°C) so với nhiệt độ của API; lệch hơn thì giữ giá trị của API
+    private final double maxCorrection;
+
+    // Version model đã cảnh báo sai số feature, tránh ghi log lặp lại ở mỗi request
+    private volatile String rejectedModelVersion;
+
+    /**
+     * Nhiệt độ đã chấm điểm cho tất cả các giờ của một report. Không thay đổi sau khi tạo.
+     */
+    private static final class ScoredHours {
+        private final ComprehensiveWeatherReport report;
+        private final String modelVersion;
+        private final float[] temperatures;
+
+        ScoredHours(ComprehensiveWeatherReport report, String modelVersion, float[] temperatures) {
+            this.report = report;
+            this.modelVersion = modelVersion;
+            this.temperatures = temperatures;
+        }
+    }
+
+    @Autowired
+    public HourlyForecastService(@Qualifier("hourlyForecastModel") ForecastModel hourlyForecastModel,
+            CacheManager cacheManager,
+            @Value("${models.hourly.max-correction:5.0}") double maxCorrection) {
+        this.hourlyForecastModel = hourlyForecastModel;
+        this.cacheManager = cacheManager;
+        this.maxCorrection = maxCorrection;
+    }
+
+    /**
+     * Dự báo theo giờ của ngày {@code date}. Nhiệt độ lấy từ hourly model, các giá trị
+     * khác lấy từ API; nếu model chưa nạp hoặc lỗi thì trả về dữ liệu của API.
+     */
+    public List<HourlyForecast> getHourlyForecast(String province, LocalDate date,
+            ComprehensiveWeatherReport report) {
+        ComprehensiveWeatherReport.HourlyData hourly = report.getHourly();
+        List<HourlyForecast> apiHours = hourly.getHourlyForecasts(date);
+        if (apiHours.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        float[] temperatures = getScoredTemperatures(province, report);
+        if (temperatures == null) {
+            return apiHours;
+        }
+
+        int start = hourly.getTimeAxis().dayStart(date);
+        List<HourlyForecast> result = new ArrayList<>(apiHours.size());
+        for (int i = 0; i < apiHours.size(); i++) {
+            HourlyForecast hour = apiHours.get(i);
+            hour.setTemperature(temperatures[start + i]);
+            result.add(hour);
+        }
+        return result;
+    }
+
+    /**
+     * Nhiệt độ dự báo cho mọi giờ của report, dùng lại kết quả cache nếu còn hợp lệ.
+     *
+     * @return null nếu model không dùng được
+     */
+    private float[] getScoredTemperatures(String province, ComprehensiveWeatherReport report) {
+        String modelVersion = hourlyForecastModel.getVersion();
+        if (modelVersion == null) {
+            return null;
+        }
+        int numFeature;
+        try {
+            numFeature = hourlyForecastModel.getNumFeature();
+        } catch (XGBoostError e) {
+            logger.warn("Hourly model unavailable: {}", e.getMessage());
+            return null;
+        }
+        if (numFeature != FEATURE_NAMES.length) {
+            if (!modelVersion.equals(rejectedModelVersion)) {
+                rejectedModelVersion = modelVersion;
+                logger.warn("Hourly model {} expects {} features, {} are provided; using API temperatures",
+                        modelVersion, numFeature, FEATURE_NAMES.length);
+            }
+            return null;
+        }
+
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+        ScoredHours cached = cache != null ? cache.get(province, ScoredHours.class) : null;
+        // Report trong cache là immutable: cùng instance nghĩa là cùng dữ liệu
+        if (cached != null && cached.report == report && cached.modelVersion.equals(modelVersion)) {
+            return cached.temperatures;
+        }
+
+        try {
+            long start = System.currentTimeMillis();
+            float[] temperatures = score(report);
+            if (cache != null) {
+                cache.put(province, new ScoredHours(report, modelVersion, temperatures));
+            }
+            logger.debug("Scored {} hours for {} in {} ms", temperatures.length, province,
+                    System.currentTimeMillis() - start);
+            return temperatures;
+        } catch (XGBoostError e) {
+            logger.warn("Hourly prediction failed for {}: {}", province, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Chấm điểm tất cả các giờ của report trong một batch.
+     */
+    private float[] score(ComprehensiveWeatherReport report) throws XGBoostError {
+        ComprehensiveWeatherReport.HourlyData hourly = report.getHourly();
+        int nrow = hourly.size();
+        int ncol = FEATURE_NAMES.length;
+
+        float[] row = new float[ncol];
+        float[] data = new float[nrow * ncol];
+        for (int i = 0; i < nrow; i++) {
+            writeFeatures(report, i, row);
+            System.arraycopy(row, 0, data, i * ncol, ncol);
+        }
+
+        float[] predictions = hourlyForecastModel.predictBatch(data, nrow, ncol);
+        int rejected = 0;
+        for (int i = 0; i < nrow; i++) {
+            double apiTemperature = hourly.getTemperature2m(i);
+            float predicted = predictions[i];
+            boolean invalid = Float.isNaN(predicted) || Float.isInfinite(predicted);
+            if (invalid || (!Double.isNaN(apiTemperature) && Math.abs(predicted - apiTemperature) > maxCorrection)) {
+                predictions[i] = (float) apiTemperature;
+                rejected++;
+            }
+        }
+        if (rejected > 0) {
+            logger.warn("Kept API temperature for {}/{} hours ({}%): prediction out of range",
+                    rejected, nrow, String.format("%.1f", rejected * 100.0 / nrow));
+        }
+        return predictions;
+    }
+
+    /**
+     * Ghi features của giờ {@code index} theo thứ tự {@link #FEATURE_NAMES}; thiếu dữ liệu là NaN.
+     */
+    private static void writeFeatures(ComprehensiveWeatherReport report, int index, float[] row) {
+        ComprehensiveWeatherReport.HourlyData hourly = report.getHourly();
+        LocalDateTime time = hourly.getTimeAxis().getDateTime(index);
+        int precipitationProbability = hourly.getPrecipitationProbability(index);
+
+        row[0] = (float) hourly.getTemperature2m(index);
+        row[1] = time.getHour();
+        row[2] = time.getDayOfYear();
+        row[3] = (float) report.getLatitude();
+        row[4] = (float) report.getLongitude();
+        row[5] = precipitationProbability != ComprehensiveWeatherReport.MISSING_INT
+                ? precipitationProbability / 100f
+                : Float.NaN;
+        row[6] = (float) hourly.getWindSpeed10m(index);
+    }
+}
@@ -0,0 +1,371 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.ai.ForecastModel;
+import com.weather.forecast.model.ModelMetrics;
+import com.weather.forecast.repository.ModelMetricsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * Registry quản lý phiên bản model, nạp lại model không cần khởi động lại ứng dụng.
+ * - train_model.py ghi mỗi lần huấn luyện vào {models.registry.directory}/{model_name}/{version}.bin
+ * - Định kỳ quét thư mục, version mới nhất (theo tên vYYYYmmdd_HHMM) được nạp, kiểm tra
+ * và warm-up trên thread của scheduler, sau đó mới thay thế atomically vào ForecastModel
+ * - Có thể rollback về version có RMSE thấp nhất trong model_metrics. Version được ghim vào
+ * {model_name}/pin.properties để giữ nguyên sau khi khởi động lại, cho đến khi có version mới hơn
+ */
+@Service
+@Lazy(false)
+public class ModelRegistryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelRegistryService.class);
+
+    private static final String[] MODEL_EXTENSIONS = { ".bin", ".ubj", ".json" };
+
+    // Số dòng feature ngẫu nhiên dùng để kiểm tra model mới
+    private static final int PROBE_ROWS = 64;
+
+    // File ghim version sau rollback, nằm trong thư mục của từng model
+    private static final String PIN_FILE = "pin.properties";
+
+    private final Map<String, ForecastModel> models = new LinkedHashMap<>();
+    private final ModelMetricsRepository modelMetricsRepository;
+    private final ForecastPrecomputeService forecastPrecomputeService;
+    private final File registryDirectory;
+    private final boolean enabled;
+    private final int warmupIterations;
+
+    // Version mới nhất đã xét cho từng model (đã nạp hoặc đã bị từ chối)
+    private final Map<String, String> lastSeenVersions = new LinkedHashMap<>();
+
+    // Model đã bị thay thế: giữ qua trọn một chu kỳ quét rồi mới giải phóng,
+    // để các request đang chạy trên model cũ kết thúc an toàn
+    private final List<ForecastModel.LoadedModel> retiredModels = new ArrayList<>();
+    private final List<ForecastModel.LoadedModel> pendingDispose = new ArrayList<>();
+
+    @Autowired
+    public ModelRegistryService(List<ForecastModel> forecastModels,
+            ModelMetricsRepository modelMetricsRepository,
+            ForecastPrecomputeService forecastPrecomputeService,
+            @Value("${models.registry.directory:models/registry}") String registryDirectory,
+            @Value("${models.registry.enabled:true}") boolean enabled,
+            @Value("${models.registry.warmup-iterations:50}") int warmupIterations) {
+        for (ForecastModel model : forecastModels) {
+            this.models.put(model.getName(), model);
+        }
+        this.modelMetricsRepository = modelMetricsRepository;
+        this.forecastPrecomputeService = forecastPrecomputeService;
+        this.registryDirectory = new File(registryDirectory);
+        this.enabled = enabled;
+        this.warmupIterations = warmupIterations;
+    }
+
+    /**
+     * Quét thư mục registry và nạp version mới nhất của từng model (nếu có).
+     */
+    @Scheduled(initialDelayString = "${models.registry.initial-delay-ms:10000}",
+            fixedDelayString = "${models.registry.poll-interval-ms:60000}")
+    public void pollForNewVersions() {
+        if (!enabled) {
+            return;
+        }
+        boolean swapped;
+        synchronized (this) {
+            disposeRetiredModels();
+            if (!registryDirectory.isDirectory()) {
+                return;
+            }
+
+            swapped = false;
+            for (ForecastModel model : models.values()) {
+                // Lần quét đầu tiên: nạp lại version đã ghim trước khi khởi động lại
+                if (!lastSeenVersions.containsKey(model.getName())) {
+                    swapped |= restorePinnedVersion(model);
+                }
+
+                File latest = findLatestVersionFile(model.getName());
+                if (latest == null) {
+                    continue;
+                }
+                String version = versionOf(latest);
+                String lastSeen = lastSeenVersions.get(model.getName());
+                if (lastSeen != null && version.compareTo(lastSeen) <= 0) {
+                    continue;
+                }
+                lastSeenVersions.put(model.getName(), version);
+
+                try {
+                    activate(model, latest, version);
+                    clearPin(model.getName());
+                    swapped = true;
+                } catch (Exception e) {
+                    logger.warn("Rejected {} version {}: {}", model.getName(), version, e.getMessage());
+                    if (!model.isLoaded()) {
+                        swapped |= tryRollback(model);
+                    }
+                }
+            }
+        }
+
+        // Dự báo tính sẵn được tạo bởi model cũ, tính lại bằng model mới
+        if (swapped) {
+            try {
+                forecastPrecomputeService.precomputeAll();
+            } catch (Exception e) {
+                logger.warn("Forecast precompute after model swap failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Rollback một model về version có RMSE thấp nhất trong model_metrics.
+     * Các version mới hơn đang có trong thư mục sẽ không được tự động nạp lại, kể cả sau khi
+     * khởi động lại ứng dụng.
+     *
+     * @return Version đã được nạp
+     */
+    public synchronized String rollbackToBestVersion(String modelName) throws Exception {
+        ForecastModel model = models.get(modelName);
+        if (model == null) {
+            throw new IllegalArgumentException("Không có model: " + modelName);
+        }
+        ModelMetrics best = modelMetricsRepository.findTopByModelNameOrderByRmseAsc(modelName)
+                .orElseThrow(() -> new IllegalStateException("Chưa có metrics cho model " + modelName));
+
+        File file = findVersionFile(modelName, best.getModelVersion());
+        if (file == null) {
+            throw new IllegalStateException("Không tìm thấy file của version " + best.getModelVersion());
+        }
+        activate(model, file, best.getModelVersion());
+
+        File latest = findLatestVersionFile(modelName);
+        if (latest != null) {
+            lastSeenVersions.merge(modelName, versionOf(latest), (a, b) -> a.compareTo(b) >= 0 ? a : b);
+        }
+        writePin(modelName, best.getModelVersion(), lastSeenVersions.get(modelName));
+        return best.getModelVersion();
+    }
+
+    /**
+     * Thông tin version đang chạy của từng model (cho Admin Dashboard).
+     */
+    public List<Map<String, Object>> getModelVersions() {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (ForecastModel model : models.values()) {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("name", model.getName());
+            info.put("engine", model.getEngine());
+            info.put("version", model.isLoaded() ? model.getVersion() : "-");
+            info.put("loaded", model.isLoaded());
+            result.add(info);
+        }
+        return result;
+    }
+
+    /**
+     * Nạp, kiểm tra, warm-up rồi mới thay thế model đang chạy.
+     */
+    private void activate(ForecastModel model, File file, String version) throws Exception {
+        long start = System.currentTimeMillis();
+        ForecastModel.LoadedModel candidate;
+        try (InputStream in = new FileInputStream(file)) {
+            candidate = model.load(in, file.getName(), version);
+        }
+
+        try {
+            validateAndWarmUp(model, candidate);
+        } catch (Exception e) {
+            candidate.dispose();
+            throw e;
+        }
+
+        ForecastModel.LoadedModel previous = model.swap(candidate);
+        if (previous != null) {
+            retiredModels.add(previous);
+        }
+        logger.info("Activated {} version {} (previous: {}) in {} ms", model.getName(), version,
+                previous != null ? previous.getVersion() : "none", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Model mới phải nhận đúng số feature của model đang chạy và trả về giá trị hữu hạn.
+     * Các lần chạy lặp lại làm nóng JIT/native trước khi nhận request thật.
+     */
+    private void validateAndWarmUp(ForecastModel model, ForecastModel.LoadedModel candidate) throws Exception {
+        int numFeature = candidate.getNumFeature();
+        int expected = model.getNumFeature();
+        if (expected > 0 && expected != numFeature) {
+            throw new IllegalStateException("Model expects " + numFeature + " features, current model uses "
+                    + expected);
+        }
+
+        float[] probe = new float[PROBE_ROWS * numFeature];
+        Random random = new Random(42);
+        for (int i = 0; i < probe.length; i++) {
+            probe[i] = random.nextFloat() * 100f;
+        }
+
+        float[] output = model.predictBatch(candidate, probe, PROBE_ROWS, numFeature);
+        for (float value : output) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw new IllegalStateException("Model returned a non-finite prediction");
+            }
+        }
+        for (int i = 0; i < warmupIterations; i++) {
+            model.predictBatch(candidate, probe, PROBE_ROWS, numFeature);
+        }
+    }
+
+    /**
+     * Model không còn bản nào chạy được: nạp version tốt nhất theo RMSE nếu có.
+     */
+    private boolean tryRollback(ForecastModel model) {
+        try {
+            String version = rollbackToBestVersion(model.getName());
+            logger.info("Rolled back {} to best RMSE version {}", model.getName(), version);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Rollback of {} failed: {}", model.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Nạp version đã ghim (nếu có). Các version không mới hơn lúc ghim sẽ bị bỏ qua.
+     *
+     * @return true nếu đã thay model
+     */
+    private boolean restorePinnedVersion(ForecastModel model) {
+        Properties pin = readPin(model.getName());
+        if (pin == null) {
+            return false;
+        }
+        String version = pin.getProperty("version");
+        lastSeenVersions.put(model.getName(), pin.getProperty("skip-through", version));
+
+        File file = findVersionFile(model.getName(), version);
+        if (file == null) {
+            logger.warn("Pinned {} version {} not found in registry", model.getName(), version);
+            return false;
+        }
+        try {
+            activate(model, file, version);
+            logger.info("Restored pinned {} version {}", model.getName(), version);
+            return true;
+        } catch (Exception e) {
+            logger.warn("Pinned {} version {} could not be loaded: {}", model.getName(), version, e.getMessage());
+            return false;
+        }
+    }
+
+    private Properties readPin(String modelName) {
+        File file = new File(new File(registryDirectory, modelName), PIN_FILE);
+        if (!file.isFile()) {
+            return null;
+        }
+        Properties pin = new Properties();
+        try (InputStream in = new FileInputStream(file)) {
+            pin.load(in);
+        } catch (IOException e) {
+            logger.warn("Cannot read {}: {}", file, e.getMessage());
+            return null;
+        }
+        return pin.getProperty("version") != null ? pin : null;
+    }
+
+    /**
+     * Ghi file ghim qua file tạm rồi đổi tên, không để lại file ghi dở.
+     */
+    private void writePin(String modelName, String version, String skipThrough) throws IOException {
+        Properties pin = new Properties();
+        pin.setProperty("version", version);
+        if (skipThrough != null) {
+            pin.setProperty("skip-through", skipThrough);
+        }
+
+        File file = new File(new File(registryDirectory, modelName), PIN_FILE);
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new FileOutputStream(tmp)) {
+            pin.store(out, "Rollback pin");
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void clearPin(String modelName) {
+        File file = new File(new File(registryDirectory, modelName), PIN_FILE);
+        if (file.isFile() && !file.delete()) {
+            logger.warn("Cannot delete {}", file);
+        }
+    }
+
+    private void disposeRetiredModels() {
+        for (ForecastModel.LoadedModel retired : pendingDispose) {
+            retired.dispose();
+        }
+        pendingDispose.clear();
+        pendingDispose.addAll(retiredModels);
+        retiredModels.clear();
+    }
+
+    private File findLatestVersionFile(String modelName) {
+        File[] files = new File(registryDirectory, modelName).listFiles(this::isModelFile);
+        if (files == null || files.length == 0) {
+            return null;
+        }
+        File latest = files[0];
+        for (File file : files) {
+            if (versionOf(file).compareTo(versionOf(latest)) > 0) {
+                latest = file;
+            }
+        }
+        return latest;
+    }
+
+    private File findVersionFile(String modelName, String version) {
+        for (String extension : MODEL_EXTENSIONS) {
+            File file = new File(new File(registryDirectory, modelName), version + extension);
+            if (file.isFile()) {
+                return file;
+            }
+        }
+        return null;
+    }
+
+    private boolean isModelFile(File file) {
+        if (!file.isFile()) {
+            return false;
+        }
+        for (String extension : MODEL_EXTENSIONS) {
+            if (file.getName().endsWith(extension)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String versionOf(File file) {
+        String fileName = file.getName();
+        int dot = fileName.lastIndexOf('.');
+        return dot > 0 ? fileName.substring(0, dot) : fileName;
+    }
+}
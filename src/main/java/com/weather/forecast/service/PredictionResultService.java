@@ -2,23 +2,30 @@ package com.weather.forecast.service;
 
 import com.weather.forecast.model.DailyForecast;
 import com.weather.forecast.model.PredictionResult;
-import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.repository.PredictionResultJdbcRepository;
 import com.weather.forecast.repository.PredictionResultRepository;
-import com.weather.forecast.repository.WeatherHistoryRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Service quản lý và đánh giá kết quả dự đoán XGBoost.
- * - Lưu prediction khi XGBoost chạy
+ * - Lưu prediction khi XGBoost chạy: INSERT ... ON CONFLICT DO NOTHING theo batch, các
+ * (tỉnh, ngày) đã lưu trong ngày được nhớ trong bộ nhớ nên không truy vấn lại database
  * - Verify với actual data khi có
  * - Tính accuracy metrics
  */
@@ -28,95 +35,132 @@ public class PredictionResultService {
     private static final Logger logger = LoggerFactory.getLogger(PredictionResultService.class);
 
     private final PredictionResultRepository predictionResultRepository;
-    private final WeatherHistoryRepository weatherHistoryRepository;
+    private final PredictionResultJdbcRepository predictionResultJdbcRepository;
+    private final Executor predictionWriteExecutor;
+
+    // Các "tỉnh|ngày" đã lưu (hoặc đang được lưu) trong ngày persistedOn
+    private final Set<String> persistedKeys = ConcurrentHashMap.newKeySet();
+    private volatile LocalDate persistedOn = LocalDate.now();
 
     @Autowired
     public PredictionResultService(PredictionResultRepository predictionResultRepository,
-            WeatherHistoryRepository weatherHistoryRepository) {
+            PredictionResultJdbcRepository predictionResultJdbcRepository,
+            @Qualifier("predictionWriteExecutor") Executor predictionWriteExecutor) {
         this.predictionResultRepository = predictionResultRepository;
-        this.weatherHistoryRepository = weatherHistoryRepository;
+        this.predictionResultJdbcRepository = predictionResultJdbcRepository;
+        this.predictionWriteExecutor = predictionWriteExecutor;
     }
 
     /**
-     * Lưu kết quả dự đoán XGBoost (async để không block)
+     * Lưu predictions của một tỉnh (không block request).
+     * Các ngày đã lưu trong hôm nay bị bỏ qua ngay trong bộ nhớ; phần còn lại được ghi
+     * bằng một batch trên predictionWriteExecutor. Pool đầy thì bỏ lượt ghi này, lần
+     * dự báo sau sẽ ghi lại.
      */
-    @Async
-    public void savePrediction(String province, DailyForecast forecast) {
-        try {
-            // Kiểm tra đã có prediction cho ngày này chưa
-            Optional<PredictionResult> existing = predictionResultRepository
-                    .findByProvinceAndPredictionDate(province, forecast.getDate());
-
-            if (existing.isPresent()) {
-                logger.debug("Prediction đã tồn tại cho {} ngày {}", province, forecast.getDate());
-                return;
+    public void savePredictions(String province, List<DailyForecast> forecasts) {
+        List<PredictionResult> toSave = new ArrayList<>(forecasts.size());
+        List<String> claimedKeys = new ArrayList<>(forecasts.size());
+        for (DailyForecast forecast : forecasts) {
+            String key = claim(province, forecast.getDate());
+            if (key != null) {
+                claimedKeys.add(key);
+                toSave.add(toPredictionResult(province, forecast));
             }
+        }
+        if (toSave.isEmpty()) {
+            return;
+        }
 
-            PredictionResult result = new PredictionResult();
-            result.setProvince(province);
-            result.setPredictionDate(forecast.getDate());
-            result.setPredictedMaxTemp(forecast.getTempMax());
-            result.setPredictedMinTemp(forecast.getTempMin());
-            result.setPredictedRainProb(forecast.getRainProbability());
-            result.setPredictedWeatherCode(forecast.getWeatherCode());
+        try {
+            predictionWriteExecutor.execute(() -> {
+                try {
+                    int inserted = predictionResultJdbcRepository.insertIgnoreExisting(toSave);
+                    logger.debug("✓ Đã lưu {} predictions mới cho {}", inserted, province);
+                } catch (Exception e) {
+                    persistedKeys.removeAll(claimedKeys);
+                    logger.error("Lỗi lưu prediction cho {}: {}", province, e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            persistedKeys.removeAll(claimedKeys);
+            logger.debug("Prediction write pool is full, skipped {} predictions for {}", toSave.size(), province);
+        }
+    }
 
-            predictionResultRepository.save(result);
-            logger.info("✓ Đã lưu prediction cho {} ngày {}: max={}°C, min={}°C",
-                    province, forecast.getDate(), forecast.getTempMax(), forecast.getTempMin());
+    /**
+     * Lưu predictions của nhiều tỉnh cùng lúc (dùng cho precompute hằng ngày) trong một JDBC batch.
+     *
+     * @return Số prediction mới đã lưu
+     */
+    public int savePredictionsBatch(Map<String, List<DailyForecast>> forecasts) {
+        List<PredictionResult> toSave = new ArrayList<>();
+        List<String> claimedKeys = new ArrayList<>();
+        forecasts.forEach((province, days) -> {
+            for (DailyForecast forecast : days) {
+                String key = claim(province, forecast.getDate());
+                if (key != null) {
+                    claimedKeys.add(key);
+                    toSave.add(toPredictionResult(province, forecast));
+                }
+            }
+        });
 
-        } catch (Exception e) {
-            logger.error("Lỗi lưu prediction cho {}: {}", province, e.getMessage());
+        try {
+            return predictionResultJdbcRepository.insertIgnoreExisting(toSave);
+        } catch (RuntimeException e) {
+            persistedKeys.removeAll(claimedKeys);
+            throw e;
         }
     }
 
     /**
-     * Lưu nhiều predictions cùng lúc
+     * Đánh dấu (tỉnh, ngày) là đã lưu. Sang ngày mới thì bắt đầu lại từ đầu.
+     *
+     * @return Key vừa được đánh dấu, hoặc null nếu đã lưu trước đó
      */
-    @Async
-    public void savePredictions(String province, List<DailyForecast> forecasts) {
-        for (DailyForecast forecast : forecasts) {
-            savePrediction(province, forecast);
+    private String claim(String province, LocalDate date) {
+        LocalDate today = LocalDate.now();
+        if (!today.equals(persistedOn)) {
+            synchronized (persistedKeys) {
+                if (!today.equals(persistedOn)) {
+                    persistedKeys.clear();
+                    persistedOn = today;
+                }
+            }
         }
+        String key = province + "|" + date;
+        return persistedKeys.add(key) ? key : null;
+    }
+
+    private static PredictionResult toPredictionResult(String province, DailyForecast forecast) {
+        PredictionResult result = new PredictionResult();
+        result.setProvince(province);
+        result.setPredictionDate(forecast.getDate());
+        result.setPredictedMaxTemp(forecast.getTempMax());
+        result.setPredictedMinTemp(forecast.getTempMin());
+        result.setPredictedRainProb(forecast.getRainProbability());
+        result.setPredictedWeatherCode(forecast.getWeatherCode());
+        return result;
     }
 
     /**
-     * Chạy mỗi ngày lúc 23:00 để verify predictions với actual data
+     * Chạy mỗi ngày lúc 23:00 để verify predictions với actual data.
+     * Toàn bộ được verify bằng một câu UPDATE join với weather_history, MAE được tính
+     * trong database thay vì tra cứu và lưu từng prediction.
      */
     @Scheduled(cron = "0 0 23 * * ?")
+    @Transactional
     public void verifyPendingPredictions() {
         logger.info("Bắt đầu verify predictions...");
 
+        long start = System.currentTimeMillis();
         LocalDate today = LocalDate.now();
-        List<PredictionResult> pendingResults = predictionResultRepository
-                .findByIsVerifiedFalseAndPredictionDateBefore(today);
-
-        int verified = 0;
-        for (PredictionResult prediction : pendingResults) {
-            try {
-                // Lấy actual data từ weather_history
-                Optional<WeatherHistory> actualData = weatherHistoryRepository
-                        .findByProvinceAndRecordDate(prediction.getProvince(), prediction.getPredictionDate());
-
-                if (actualData.isPresent()) {
-                    WeatherHistory actual = actualData.get();
-                    prediction.verifyWithActual(
-                            actual.getTempMax(),
-                            actual.getTempMin(),
-                            actual.getPrecipitationProbability(),
-                            actual.getWeatherCode());
-                    predictionResultRepository.save(prediction);
-                    verified++;
-
-                    logger.info("✓ Verified {}/{}: MAE max={}°C, MAE min={}°C",
-                            prediction.getProvince(), prediction.getPredictionDate(),
-                            prediction.getMaeMaxTemp(), prediction.getMaeMinTemp());
-                }
-            } catch (Exception e) {
-                logger.error("Lỗi verify prediction {}: {}", prediction.getId(), e.getMessage());
-            }
-        }
+        int verified = predictionResultRepository.verifyAgainstHistory(today, LocalDateTime.now());
+        long remaining = predictionResultRepository.countByIsVerifiedFalseAndPredictionDateBefore(today);
+        long elapsed = Math.max(System.currentTimeMillis() - start, 1);
 
-        logger.info("Hoàn thành verify: {}/{} predictions", verified, pendingResults.size());
+        logger.info("Hoàn thành verify: {} predictions trong {} ms ({} rows/s), {} chưa có dữ liệu thực tế",
+                verified, elapsed, verified * 1000L / elapsed, remaining);
     }
 
     /**
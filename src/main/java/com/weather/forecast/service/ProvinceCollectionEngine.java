@@ -0,0 +1,154 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.model.dto.CollectionJob;
+import com.weather.forecast.util.TokenBucketRateLimiter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Engine chạy việc thu thập dữ liệu cho nhiều tỉnh/thành song song.
+ * - Số worker giới hạn bởi pool {@code dataCollectionExecutor}
+ * - Mỗi lần gọi (kể cả retry) phải lấy token từ rate limiter để tôn trọng giới hạn của Open-Meteo
+ * - Lỗi được retry với backoff luỹ thừa có jitter
+ * - Tiến độ từng tỉnh được ghi vào {@link CollectionJob}
+ * Mỗi thời điểm chỉ chạy một lượt thu thập.
+ */
+@Service
+public class ProvinceCollectionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProvinceCollectionEngine.class);
+
+    /**
+     * Công việc thu thập cho một tỉnh.
+     */
+    @FunctionalInterface
+    public interface ProvinceTask {
+        /**
+         * @return Số bản ghi mới đã lưu
+         */
+        int collect(String province) throws Exception;
+    }
+
+    private final Executor executor;
+    private final TokenBucketRateLimiter rateLimiter;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+
+    private final AtomicReference<CollectionJob> currentJob = new AtomicReference<>();
+
+    @Autowired
+    public ProvinceCollectionEngine(@Qualifier("dataCollectionExecutor") Executor executor,
+            @Value("${data-collection.rate-limit.permits-per-second:5}") double permitsPerSecond,
+            @Value("${data-collection.rate-limit.burst:5}") int burst,
+            @Value("${data-collection.retry.max-attempts:3}") int maxAttempts,
+            @Value("${data-collection.retry.base-delay-ms:500}") long baseDelayMs,
+            @Value("${data-collection.retry.max-delay-ms:8000}") long maxDelayMs) {
+        this.executor = executor;
+        this.rateLimiter = new TokenBucketRateLimiter(permitsPerSecond, burst);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMs = baseDelayMs;
+        this.maxDelayMs = maxDelayMs;
+    }
+
+    /**
+     * Bắt đầu một lượt thu thập mới.
+     *
+     * @throws IllegalStateException nếu đang có lượt thu thập khác chạy
+     */
+    public CollectionJob begin(String type, int total) {
+        CollectionJob job = new CollectionJob(type, total);
+        CollectionJob previous = currentJob.get();
+        if (previous != null && !previous.isFinished()) {
+            throw new IllegalStateException("Đang có một lượt thu thập khác chạy (" + previous.getType() + ", "
+                    + previous.getCompleted() + "/" + previous.getTotal() + ")");
+        }
+        if (!currentJob.compareAndSet(previous, job)) {
+            throw new IllegalStateException("Đang có một lượt thu thập khác chạy");
+        }
+        return job;
+    }
+
+    /**
+     * Chạy {@code task} cho từng tỉnh trên worker pool. Future hoàn thành khi tất cả
+     * các tỉnh đã xong (thành công hoặc hết lượt retry); job được đánh dấu kết thúc.
+     */
+    public CompletableFuture<CollectionJob> submit(CollectionJob job, List<String> provinces, ProvinceTask task) {
+        CompletableFuture<?>[] futures = provinces.stream()
+                .map(province -> CompletableFuture.runAsync(() -> runWithRetry(job, province, task), executor))
+                .toArray(CompletableFuture[]::new);
+
+        return CompletableFuture.allOf(futures)
+                .handle((ignored, ex) -> {
+                    job.markFinished();
+                    logger.info("Collection '{}' finished: {} success, {} failed, {} records saved",
+                            job.getType(), job.getSucceeded(), job.getFailed(), job.getRecordsSaved());
+                    return job;
+                });
+    }
+
+    /**
+     * Lấy thêm một token từ rate limiter. Dùng cho task gọi API nhiều lần trong
+     * một lượt (engine chỉ lấy sẵn một token cho mỗi lần thử).
+     */
+    public void throttle() throws InterruptedException {
+        rateLimiter.acquire();
+    }
+
+    /**
+     * Lượt thu thập gần nhất (đang chạy hoặc đã xong), có thể null.
+     */
+    public CollectionJob getCurrentJob() {
+        return currentJob.get();
+    }
+
+    private void runWithRetry(CollectionJob job, String province, ProvinceTask task) {
+        job.markRunning(province);
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                rateLimiter.acquire();
+                int saved = task.collect(province);
+                job.recordSuccess(province, attempt, saved);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                job.recordFailure(province, attempt, "Interrupted");
+                return;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    logger.warn("Collection failed for {} after {} attempts: {}", province, attempt, e.getMessage());
+                    job.recordFailure(province, attempt, e.getMessage());
+                    return;
+                }
+                logger.debug("Attempt {} failed for {}: {}", attempt, province, e.getMessage());
+                try {
+                    Thread.sleep(backoffDelay(attempt));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    job.recordFailure(province, attempt, "Interrupted");
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Backoff luỹ thừa với "equal jitter": một nửa cố định, một nửa ngẫu nhiên,
+     * để các worker lỗi cùng lúc không retry đồng loạt.
+     */
+    private long backoffDelay(int attempt) {
+        long exponential = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long half = exponential / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+}
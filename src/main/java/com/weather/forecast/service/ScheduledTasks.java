@@ -11,6 +11,7 @@ import java.time.format.DateTimeFormatter;
 /**
  * Service chạy các tác vụ tự động theo lịch.
  * - Thu thập dữ liệu thời tiết hàng ngày
+ * - Tính sẵn dự báo XGBoost cho tất cả tỉnh sau khi thu thập
  * - Cập nhật trạng thái cảnh báo
  */
 @Service
@@ -18,14 +19,17 @@ import java.time.format.DateTimeFormatter;
 public class ScheduledTasks {
 
     private final DataUpdateService dataUpdateService;
+    private final ForecastPrecomputeService forecastPrecomputeService;
 
     private LocalDateTime lastDataCollectionTime;
     private String lastDataCollectionStatus;
     private int lastCollectionRecords;
 
     @Autowired
-    public ScheduledTasks(DataUpdateService dataUpdateService) {
+    public ScheduledTasks(DataUpdateService dataUpdateService,
+            ForecastPrecomputeService forecastPrecomputeService) {
         this.dataUpdateService = dataUpdateService;
+        this.forecastPrecomputeService = forecastPrecomputeService;
         this.lastDataCollectionStatus = "Chưa chạy";
         this.lastCollectionRecords = 0;
     }
@@ -55,6 +59,14 @@ public class ScheduledTasks {
             System.err.println("=== [SCHEDULER] Lỗi thu thập dữ liệu: " + e.getMessage() + " ===");
             e.printStackTrace();
         }
+
+        // Tính sẵn dự báo XGBoost cho tất cả tỉnh từ dữ liệu vừa thu thập
+        try {
+            int provinces = forecastPrecomputeService.precomputeAll();
+            System.out.println("=== [SCHEDULER] Đã tính sẵn dự báo cho " + provinces + " tỉnh/thành ===");
+        } catch (Exception e) {
+            System.err.println("=== [SCHEDULER] Lỗi tính sẵn dự báo: " + e.getMessage() + " ===");
+        }
     }
 
     /**
@@ -0,0 +1,194 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.repository.WeatherHistoryJdbcRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Feature store trong bộ nhớ cho XGBoost: giữ lag features (max/min/xác suất mưa của
+ * các ngày gần nhất) của từng tỉnh trong mảng primitive.
+ * - Nạp một lần từ database (chỉ các ngày gần nhất của mỗi tỉnh), sau đó được
+ * DataUpdateService cập nhật mỗi khi ghi thêm weather_history
+ * - Ghi feature vector thẳng vào mảng của caller, không truy vấn database và không cấp phát
+ */
+@Service
+public class WeatherFeatureStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherFeatureStore.class);
+
+    // Số ngày lịch sử dùng làm features cho XGBoost
+    public static final int PAST_DAYS_FOR_FEATURES = 3;
+
+    // Số features mỗi dòng: lat, lon, day_of_year + 3 giá trị cho mỗi ngày lịch sử
+    public static final int FEATURE_COUNT = 3 + PAST_DAYS_FOR_FEATURES * 3;
+
+    // Giá trị thay thế khi bản ghi lịch sử thiếu dữ liệu
+    private static final float DEFAULT_TEMP_MAX = 25.0f;
+    private static final float DEFAULT_TEMP_MIN = 20.0f;
+    private static final float DEFAULT_RAIN_PROB = 0.0f;
+
+    private final WeatherHistoryJdbcRepository weatherHistoryJdbcRepository;
+
+    // Tỉnh -> lag features; mỗi lần cập nhật thay bằng snapshot mới nên đọc không cần khóa
+    private final ConcurrentMap<String, ProvinceLags> lags = new ConcurrentHashMap<>();
+
+    private volatile boolean loaded;
+
+    /**
+     * Lag features của một tỉnh, các ngày sắp xếp giảm dần. Không thay đổi sau khi tạo.
+     */
+    private static final class ProvinceLags {
+        private final float latitude;
+        private final float longitude;
+        private final long[] epochDays;
+        private final float[] values; // [max, min, rain] cho mỗi ngày, cùng thứ tự với epochDays
+
+        ProvinceLags(float latitude, float longitude, long[] epochDays, float[] values) {
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.epochDays = epochDays;
+            this.values = values;
+        }
+
+        /**
+         * Snapshot mới có thêm (hoặc thay thế) ngày {@code epochDay}, chỉ giữ các ngày gần nhất.
+         */
+        ProvinceLags with(long epochDay, float lat, float lon, float tempMax, float tempMin, float rainProb) {
+            int size = epochDays.length;
+            int position = 0;
+            while (position < size && epochDays[position] > epochDay) {
+                position++;
+            }
+            boolean replace = position < size && epochDays[position] == epochDay;
+            if (!replace && position >= PAST_DAYS_FOR_FEATURES) {
+                return this; // Cũ hơn tất cả các ngày đang giữ
+            }
+
+            int newSize = replace ? size : Math.min(size + 1, PAST_DAYS_FOR_FEATURES);
+            long[] newDays = new long[newSize];
+            float[] newValues = new float[newSize * 3];
+            for (int src = 0, dst = 0; dst < newSize; dst++) {
+                if (dst == position) {
+                    newDays[dst] = epochDay;
+                    newValues[dst * 3] = tempMax;
+                    newValues[dst * 3 + 1] = tempMin;
+                    newValues[dst * 3 + 2] = rainProb;
+                    if (replace) {
+                        src++;
+                    }
+                } else {
+                    newDays[dst] = epochDays[src];
+                    System.arraycopy(values, src * 3, newValues, dst * 3, 3);
+                    src++;
+                }
+            }
+
+            // Tọa độ theo bản ghi mới nhất
+            boolean newest = position == 0;
+            return new ProvinceLags(newest ? lat : latitude, newest ? lon : longitude, newDays, newValues);
+        }
+    }
+
+    private static final ProvinceLags EMPTY = new ProvinceLags(0f, 0f, new long[0], new float[0]);
+
+    @Autowired
+    public WeatherFeatureStore(WeatherHistoryJdbcRepository weatherHistoryJdbcRepository) {
+        this.weatherHistoryJdbcRepository = weatherHistoryJdbcRepository;
+    }
+
+    /**
+     * Ghi feature vector của {@code province} cho ngày {@code predictionDate} vào
+     * {@code dest} bắt đầu từ {@code offset}.
+     * Features: [lat, lon, day_of_year, past_day1_max, past_day1_min, past_day1_rain, ...]
+     *
+     * @return false nếu tỉnh chưa đủ {@value #PAST_DAYS_FOR_FEATURES} ngày lịch sử
+     */
+    public boolean writeFeatures(String province, LocalDate predictionDate, float[] dest, int offset) {
+        ensureLoaded();
+        ProvinceLags provinceLags = lags.get(province);
+        if (provinceLags == null || provinceLags.epochDays.length < PAST_DAYS_FOR_FEATURES) {
+            return false;
+        }
+        dest[offset] = provinceLags.latitude;
+        dest[offset + 1] = provinceLags.longitude;
+        dest[offset + 2] = predictionDate.getDayOfYear();
+        System.arraycopy(provinceLags.values, 0, dest, offset + 3, PAST_DAYS_FOR_FEATURES * 3);
+        return true;
+    }
+
+    /**
+     * Các tỉnh đã đủ lịch sử để dự báo.
+     */
+    public List<String> getReadyProvinces() {
+        ensureLoaded();
+        List<String> ready = new ArrayList<>();
+        lags.forEach((province, provinceLags) -> {
+            if (provinceLags.epochDays.length >= PAST_DAYS_FOR_FEATURES) {
+                ready.add(province);
+            }
+        });
+        return ready;
+    }
+
+    /**
+     * Số ngày lịch sử đang giữ cho một tỉnh.
+     */
+    public int getHistoryDays(String province) {
+        ensureLoaded();
+        ProvinceLags provinceLags = lags.get(province);
+        return provinceLags != null ? provinceLags.epochDays.length : 0;
+    }
+
+    /**
+     * Cập nhật từ một bản ghi vừa được ghi vào weather_history.
+     */
+    public void record(WeatherHistory history) {
+        if (history.getProvince() == null || history.getRecordDate() == null
+                || history.getLatitude() == null || history.getLongitude() == null) {
+            return;
+        }
+        record(history.getProvince(), history.getRecordDate().toEpochDay(),
+                history.getLatitude(), history.getLongitude(),
+                history.getTempMax() != null ? history.getTempMax() : Double.NaN,
+                history.getTempMin() != null ? history.getTempMin() : Double.NaN,
+                history.getPrecipitationProbability() != null ? history.getPrecipitationProbability() : Double.NaN);
+    }
+
+    private void record(String province, long epochDay, double lat, double lon,
+            double tempMax, double tempMin, double rainProb) {
+        float max = Double.isNaN(tempMax) ? DEFAULT_TEMP_MAX : (float) tempMax;
+        float min = Double.isNaN(tempMin) ? DEFAULT_TEMP_MIN : (float) tempMin;
+        float rain = Double.isNaN(rainProb) ? DEFAULT_RAIN_PROB : (float) rainProb;
+        // Cập nhật theo ngày nên thứ tự nạp/cập nhật không ảnh hưởng kết quả
+        lags.compute(province, (key, current) -> (current != null ? current : EMPTY)
+                .with(epochDay, (float) lat, (float) lon, max, min, rain));
+    }
+
+    /**
+     * Nạp lag features của tất cả tỉnh từ database ở lần dùng đầu tiên.
+     */
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            int rows = weatherHistoryJdbcRepository.forEachLatestFeatureRow(PAST_DAYS_FOR_FEATURES, this::record);
+            loaded = true;
+            logger.info("Loaded feature store: {} rows for {} provinces in {} ms",
+                    rows, lags.size(), System.currentTimeMillis() - start);
+        }
+    }
+}
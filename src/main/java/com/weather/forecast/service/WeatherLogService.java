@@ -2,19 +2,33 @@ package com.weather.forecast.service;
 
 import com.weather.forecast.model.WeatherLog;
 import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import com.weather.forecast.repository.WeatherLogJdbcRepository;
 import com.weather.forecast.repository.WeatherLogRepository;
 import com.weather.forecast.util.WeatherCodeMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.scheduling.annotation.Async;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Service để lưu log thời tiết vào database.
- * Mỗi khi user tra cứu thời tiết, dữ liệu sẽ được log vào bảng weather_logs.
+ * Mỗi khi user tra cứu thời tiết, dữ liệu sẽ được log vào bảng weather_logs theo kiểu write-behind:
+ * - Request chỉ đưa log vào một hàng đợi lock-free có giới hạn, không chờ database
+ * - Một thread riêng ghi log theo batch (JDBC batch) mỗi flush-interval-ms hoặc khi đủ batch-size dòng
+ * - Hàng đợi đầy thì log mới bị bỏ (có đếm), database chậm không làm chậm request
+ * - Khi tắt ứng dụng, các log còn lại được ghi hết trước khi dừng, log đến sau đó bị bỏ (có đếm)
  */
 @Service
 public class WeatherLogService {
@@ -22,57 +36,202 @@ public class WeatherLogService {
     private static final Logger logger = LoggerFactory.getLogger(WeatherLogService.class);
 
     private final WeatherLogRepository weatherLogRepository;
+    private final WeatherLogJdbcRepository weatherLogJdbcRepository;
+    private final int queueCapacity;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+
+    private final ConcurrentLinkedQueue<PendingLog> queue = new ConcurrentLinkedQueue<>();
+    // Số phần tử trong queue (ConcurrentLinkedQueue.size() phải duyệt cả hàng đợi)
+    private final AtomicInteger pending = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    /**
+     * Log chờ ghi. CurrentWeather là immutable nên giữ tham chiếu, việc dựng entity để cho flusher.
+     */
+    private static final class PendingLog {
+        private final String city;
+        private final ComprehensiveWeatherReport.CurrentWeather current;
+        private final LocalDateTime savedDate;
+
+        PendingLog(String city, ComprehensiveWeatherReport.CurrentWeather current, LocalDateTime savedDate) {
+            this.city = city;
+            this.current = current;
+            this.savedDate = savedDate;
+        }
+    }
 
     @Autowired
-    public WeatherLogService(WeatherLogRepository weatherLogRepository) {
+    public WeatherLogService(WeatherLogRepository weatherLogRepository,
+            WeatherLogJdbcRepository weatherLogJdbcRepository,
+            @Value("${weather-log.queue-capacity:10000}") int queueCapacity,
+            @Value("${weather-log.batch-size:200}") int batchSize,
+            @Value("${weather-log.flush-interval-ms:1000}") long flushIntervalMs) {
         this.weatherLogRepository = weatherLogRepository;
+        this.weatherLogJdbcRepository = weatherLogJdbcRepository;
+        this.queueCapacity = queueCapacity;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+
+        this.flusher = new Thread(this::runFlusher, "weather-log-flusher");
+        this.flusher.setDaemon(true);
     }
 
     /**
-     * Lưu weather data vào database (chạy async để không block request chính).
-     * 
+     * Khởi động flusher sau khi bean được tạo xong, dừng lại trong {@link #shutdown()}.
+     */
+    @PostConstruct
+    public void start() {
+        flusher.start();
+    }
+
+    /**
+     * Đưa weather data vào hàng đợi ghi (không block request chính).
+     *
      * @param city   Tên thành phố/tỉnh
      * @param report Dữ liệu thời tiết từ API
      */
-    @Async
     public void logWeatherData(String city, ComprehensiveWeatherReport report) {
-        try {
-            if (report == null || report.getCurrent() == null) {
-                logger.warn("Không thể log weather data cho {}: report hoặc current data null", city);
-                return;
+        if (report == null || report.getCurrent() == null) {
+            logger.warn("Không thể log weather data cho {}: report hoặc current data null", city);
+            return;
+        }
+        if (!running) {
+            dropped.incrementAndGet();
+            return;
+        }
+
+        if (pending.incrementAndGet() > queueCapacity) {
+            pending.decrementAndGet();
+            long count = dropped.incrementAndGet();
+            if ((count & (count - 1)) == 0) { // Chỉ cảnh báo ở lần 1, 2, 4, 8...
+                logger.warn("Weather log queue full ({}), dropped {} logs so far", queueCapacity, count);
             }
+            return;
+        }
+        PendingLog entry = new PendingLog(city, report.getCurrent(), LocalDateTime.now());
+        queue.offer(entry);
+
+        // shutdown() chạy song song: nếu flusher đã ghi lần cuối thì log này không còn ai ghi
+        if (!running && queue.remove(entry)) {
+            pending.decrementAndGet();
+            dropped.incrementAndGet();
+            return;
+        }
 
-            ComprehensiveWeatherReport.CurrentWeather current = report.getCurrent();
+        // Đủ một batch thì đánh thức flusher sớm
+        if (pending.get() >= batchSize) {
+            LockSupport.unpark(flusher);
+        }
+    }
 
-            WeatherLog log = new WeatherLog();
-            log.setCity(city);
-            log.setTemperature(current.getTemperature());
-            log.setHumidity(current.getHumidity());
-            log.setWindSpeed(current.getWindSpeed());
+    /**
+     * Lấy số lượng logs đã lưu.
+     */
+    public long getLogCount() {
+        return weatherLogRepository.count();
+    }
 
-            // Map weather code to conditions description
-            String conditions = WeatherCodeMapper.getDescription(current.getWeatherCode());
-            log.setConditions(conditions);
+    /**
+     * Số log đang chờ ghi.
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * Số log bị bỏ do hàng đợi đầy, đến sau khi đã dừng hoặc ghi database lỗi.
+     */
+    public long getDroppedCount() {
+        return dropped.get() + failed.get();
+    }
 
-            // Parse update time từ API (format: "2025-12-28T15:00")
-            LocalDateTime updateTime = parseApiTime(current.getTime());
-            log.setUpdateTime(updateTime);
+    /**
+     * Dừng flusher và ghi hết các log còn lại.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(flusher);
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (pending.get() > 0) {
+            logger.warn("Weather log flusher stopped with {} logs not written", pending.get());
+        }
+    }
 
-            // Thời điểm lưu vào DB
-            log.setSavedDate(LocalDateTime.now());
+    private void runFlusher() {
+        while (running) {
+            if (pending.get() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            drain();
+        }
+        drain();
+    }
 
-            weatherLogRepository.save(log);
-            logger.info("✓ Đã lưu weather log cho {}: {}°C, {}", city, current.getTemperature(), conditions);
+    /**
+     * Ghi toàn bộ hàng đợi, mỗi lần một batch.
+     */
+    private void drain() {
+        List<WeatherLog> batch = new ArrayList<>(batchSize);
+        PendingLog entry;
+        while ((entry = queue.poll()) != null) {
+            pending.decrementAndGet();
+            batch.add(toWeatherLog(entry));
+            if (batch.size() >= batchSize) {
+                write(batch);
+                batch.clear();
+            }
+        }
+        write(batch);
+    }
 
+    private void write(List<WeatherLog> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            weatherLogJdbcRepository.insertAll(batch);
+            logger.debug("✓ Đã lưu {} weather logs", batch.size());
         } catch (Exception e) {
-            logger.error("Lỗi khi lưu weather log cho {}: {}", city, e.getMessage());
+            // Không thử lại để hàng đợi luôn có giới hạn
+            failed.addAndGet(batch.size());
+            logger.error("Lỗi khi lưu {} weather logs: {}", batch.size(), e.getMessage());
         }
     }
 
+    private WeatherLog toWeatherLog(PendingLog entry) {
+        ComprehensiveWeatherReport.CurrentWeather current = entry.current;
+
+        WeatherLog log = new WeatherLog();
+        log.setCity(entry.city);
+        log.setTemperature(current.getTemperature());
+        log.setHumidity(current.getHumidity());
+        log.setWindSpeed(current.getWindSpeed());
+
+        // Map weather code to conditions description
+        log.setConditions(WeatherCodeMapper.getDescription(current.getWeatherCode()));
+
+        // Parse update time từ API (format: "2025-12-28T15:00")
+        log.setUpdateTime(parseApiTime(current.getTime(), entry.savedDate));
+
+        // Thời điểm user tra cứu (không phải lúc batch được ghi)
+        log.setSavedDate(entry.savedDate);
+        return log;
+    }
+
     /**
      * Parse thời gian từ API response.
      */
-    private LocalDateTime parseApiTime(String timeString) {
+    private LocalDateTime parseApiTime(String timeString, LocalDateTime fallback) {
         try {
             if (timeString != null && !timeString.isEmpty()) {
                 return LocalDateTime.parse(timeString);
@@ -80,13 +239,6 @@ public class WeatherLogService {
         } catch (Exception e) {
             logger.warn("Không thể parse time: {}", timeString);
         }
-        return LocalDateTime.now();
-    }
-
-    /**
-     * Lấy số lượng logs đã lưu.
-     */
-    public long getLogCount() {
-        return weatherLogRepository.count();
+        return fallback;
     }
 }
@@ -0,0 +1,104 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.api.OpenMeteoAPI;
+import com.weather.forecast.model.ProvinceLocation;
+import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+/**
+ * Tải báo cáo thời tiết toàn diện (geocode + forecast) từ Open-Meteo.
+ * Được dùng bởi {@link WeatherService#getWeatherReport(String)} khi cache
+ * miss và bởi cache "weatherReports" để refresh nền các entry đã cũ.
+ */
+@Service
+public class WeatherReportLoader {
+
+    private final OpenMeteoAPI openMeteoAPI;
+    private final GeocodingService geocodingService;
+    private final WeatherLogService weatherLogService;
+
+    @Autowired
+    public WeatherReportLoader(OpenMeteoAPI openMeteoAPI,
+            GeocodingService geocodingService,
+            WeatherLogService weatherLogService) {
+        this.openMeteoAPI = openMeteoAPI;
+        this.geocodingService = geocodingService;
+        this.weatherLogService = weatherLogService;
+    }
+
+    /**
+     * Lấy báo cáo thời tiết mới nhất cho một tỉnh/thành.
+     *
+     * @param city Tên tỉnh/thành
+     * @return Báo cáo có đầy đủ dữ liệu daily
+     * @throws IOException          nếu không tìm được tọa độ, API lỗi hoặc dữ
+     *                              liệu trả về không có daily
+     * @throws InterruptedException nếu bị ngắt khi chờ API
+     */
+    public ComprehensiveWeatherReport loadReport(String city) throws IOException, InterruptedException {
+        ProvinceLocation location = geocodingService.findLocation(city)
+                .orElseThrow(() -> new IOException("Could not find coordinates for city: " + city));
+
+        ComprehensiveWeatherReport report = openMeteoAPI.getWeatherForecast(location.getLatitude(),
+                location.getLongitude());
+
+        if (!report.hasDailyData()) {
+            throw new IOException("Weather report for " + city + " has no daily data");
+        }
+
+        // Log weather data vào database (write-behind, không chờ ghi)
+        weatherLogService.logWeatherData(city, report);
+
+        return report;
+    }
+
+    /**
+     * Lấy báo cáo thời tiết cho nhiều tỉnh/thành bằng request batch của
+     * Open-Meteo. Report của mỗi tỉnh được trả về qua callback ngay khi chunk
+     * chứa nó hoàn thành (callback có thể chạy đồng thời trên nhiều thread).
+     * Tỉnh không tìm được tọa độ hoặc không có dữ liệu sẽ bị bỏ qua.
+     *
+     * @param cities   Danh sách tỉnh/thành
+     * @param consumer nhận (tỉnh, report) cho mỗi tỉnh thành công
+     * @throws IOException          nếu có chunk thất bại
+     * @throws InterruptedException nếu bị ngắt khi chờ API
+     */
+    public void loadReports(List<String> cities, BiConsumer<String, ComprehensiveWeatherReport> consumer)
+            throws IOException, InterruptedException {
+        List<String> located = new ArrayList<>();
+        List<ProvinceLocation> locations = new ArrayList<>();
+        for (String city : cities) {
+            Optional<ProvinceLocation> location = geocodingService.findLocation(city);
+            if (location.isPresent()) {
+                located.add(city);
+                locations.add(location.get());
+            }
+        }
+        if (located.isEmpty()) {
+            return;
+        }
+
+        double[] latitudes = new double[locations.size()];
+        double[] longitudes = new double[locations.size()];
+        for (int i = 0; i < locations.size(); i++) {
+            latitudes[i] = locations.get(i).getLatitude();
+            longitudes[i] = locations.get(i).getLongitude();
+        }
+
+        openMeteoAPI.getWeatherForecastBatch(latitudes, longitudes, (index, report) -> {
+            if (report == null || !report.hasDailyData()) {
+                return;
+            }
+            String city = located.get(index);
+            weatherLogService.logWeatherData(city, report);
+            consumer.accept(city, report);
+        });
+    }
+}
@@ -0,0 +1,107 @@
+package com.weather.forecast.service;
+
+import com.weather.forecast.model.WeatherHistory;
+import com.weather.forecast.repository.WeatherRollupJdbcRepository;
+import com.weather.forecast.repository.WeatherRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Duy trì bảng weather_rollups (tổng hợp weather_history theo tỉnh x ngày/tuần/tháng):
+ * - Khi thu thập dữ liệu, các bản ghi vừa chèn được cộng dồn vào rollup trong cùng transaction
+ * - Rebuild tính lại từ weather_history (toàn bộ hoặc từ một ngày), dùng để khởi tạo bảng
+ *   hoặc sửa sai lệch khi weather_history bị sửa/xóa trực tiếp
+ */
+@Service
+public class WeatherRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeatherRollupService.class);
+
+    private final WeatherRollupRepository weatherRollupRepository;
+    private final WeatherRollupJdbcRepository weatherRollupJdbcRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final CacheManager cacheManager;
+
+    @Autowired
+    public WeatherRollupService(WeatherRollupRepository weatherRollupRepository,
+            WeatherRollupJdbcRepository weatherRollupJdbcRepository,
+            TransactionTemplate transactionTemplate,
+            CacheManager cacheManager) {
+        this.weatherRollupRepository = weatherRollupRepository;
+        this.weatherRollupJdbcRepository = weatherRollupJdbcRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Cộng các bản ghi weather_history vừa được chèn mới vào rollup. Gọi trong cùng
+     * transaction với lệnh chèn để rebuild không đếm trùng.
+     */
+    public void record(List<WeatherHistory> inserted) {
+        if (inserted.isEmpty()) {
+            return;
+        }
+        weatherRollupJdbcRepository.addAll(inserted);
+    }
+
+    /**
+     * Tính lại toàn bộ rollup từ weather_history.
+     *
+     * @return Số kỳ đã ghi
+     */
+    public int rebuildAll() {
+        return rebuild(null);
+    }
+
+    /**
+     * Tính lại các kỳ chứa ngày {@code since} trở về sau (các kỳ cũ hơn giữ nguyên).
+     *
+     * @return Số kỳ đã ghi
+     */
+    public int refreshSince(LocalDate since) {
+        return rebuild(since);
+    }
+
+    /**
+     * Khởi tạo rollup khi bảng còn trống (lần đầu triển khai trên database đã có lịch sử).
+     */
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartupIfEmpty() {
+        try {
+            if (weatherRollupRepository.count() == 0) {
+                rebuild(null);
+            }
+        } catch (Exception e) {
+            logger.warn("Initial rollup build failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Xóa và tính lại trong một transaction: Dashboard không thấy bảng trống giữa chừng.
+     * Sau khi commit, cache "provinceStats" được xóa để Dashboard không hiện số cũ.
+     */
+    private int rebuild(LocalDate since) {
+        long start = System.currentTimeMillis();
+        Integer rows = transactionTemplate.execute(status -> weatherRollupJdbcRepository.rebuild(since));
+
+        Cache provinceStats = cacheManager.getCache("provinceStats");
+        if (provinceStats != null) {
+            provinceStats.clear();
+        }
+        logger.info("Rebuilt {} weather rollups{} in {} ms", rows,
+                since != null ? " since " + since : "", System.currentTimeMillis() - start);
+        return rows;
+    }
+}
@@ -1,20 +1,17 @@
 package com.weather.forecast.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.weather.forecast.ai.ForecastModel;
-import com.weather.forecast.api.OpenMeteoAPI;
 import com.weather.forecast.model.DailyForecast;
 import com.weather.forecast.model.HourlyForecast;
-import com.weather.forecast.model.WeatherHistory;
 import com.weather.forecast.model.dto.ComprehensiveWeatherReport;
 import com.weather.forecast.model.dto.ProvinceCurrentWeather;
-import com.weather.forecast.repository.WeatherHistoryRepository;
 
-import ml.dmlc.xgboost4j.java.XGBoostError;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
@@ -22,7 +19,11 @@ import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Optional;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * Core business logic for the weather forecast application.
@@ -31,71 +32,48 @@ import java.util.Optional;
 @Service
 public class WeatherService {
 
-    private final OpenMeteoAPI openMeteoAPI;
-    private final WeatherHistoryRepository weatherHistoryRepository;
-    private final WeatherLogService weatherLogService;
-    private final PredictionResultService predictionResultService;
-    private final ForecastModel dailyMaxTempForecastModel;
-    private final ForecastModel dailyMinTempForecastModel;
-    private final ForecastModel dailyRainProbForecastModel;
-    private final ForecastModel hourlyForecastModel;
-    private final ObjectMapper objectMapper;
+    private final WeatherReportLoader weatherReportLoader;
+    private final ForecastPrecomputeService forecastPrecomputeService;
+    private final HourlyForecastService hourlyForecastService;
+    private final Executor weatherFanOutExecutor;
+    private final CacheManager cacheManager;
 
-    // Số ngày lịch sử dùng làm features cho XGBoost
-    private static final int PAST_DAYS_FOR_FEATURES = 3;
+    // Proxy của chính service này, để các lời gọi nội bộ đi qua @Cacheable
+    private final WeatherService self;
+
+    // Timeout cho mỗi tỉnh khi lấy thời tiết song song
+    private final long provinceTimeoutMs;
 
     // Flag để bật/tắt XGBoost (có thể set từ config)
     private boolean useXGBoost = true;
 
     @Autowired
-    public WeatherService(OpenMeteoAPI openMeteoAPI,
-            WeatherHistoryRepository weatherHistoryRepository,
-            WeatherLogService weatherLogService,
-            PredictionResultService predictionResultService,
-            @Qualifier("dailyMaxTempForecastModel") ForecastModel dailyMaxTempForecastModel,
-            @Qualifier("dailyMinTempForecastModel") ForecastModel dailyMinTempForecastModel,
-            @Qualifier("dailyRainProbForecastModel") ForecastModel dailyRainProbForecastModel,
-            @Qualifier("hourlyForecastModel") ForecastModel hourlyForecastModel,
-            ObjectMapper objectMapper) {
-        this.openMeteoAPI = openMeteoAPI;
-        this.weatherHistoryRepository = weatherHistoryRepository;
-        this.weatherLogService = weatherLogService;
-        this.predictionResultService = predictionResultService;
-        this.dailyMaxTempForecastModel = dailyMaxTempForecastModel;
-        this.dailyMinTempForecastModel = dailyMinTempForecastModel;
-        this.dailyRainProbForecastModel = dailyRainProbForecastModel;
-        this.hourlyForecastModel = hourlyForecastModel;
-        this.objectMapper = objectMapper;
+    public WeatherService(WeatherReportLoader weatherReportLoader,
+            ForecastPrecomputeService forecastPrecomputeService,
+            HourlyForecastService hourlyForecastService,
+            @Qualifier("weatherFanOutExecutor") Executor weatherFanOutExecutor,
+            CacheManager cacheManager,
+            @Lazy WeatherService self,
+            @Value("${weather.fan-out.province-timeout-ms:5000}") long provinceTimeoutMs) {
+        this.weatherReportLoader = weatherReportLoader;
+        this.forecastPrecomputeService = forecastPrecomputeService;
+        this.hourlyForecastService = hourlyForecastService;
+        this.weatherFanOutExecutor = weatherFanOutExecutor;
+        this.cacheManager = cacheManager;
+        this.self = self;
+        this.provinceTimeoutMs = provinceTimeoutMs;
     }
 
     /**
      * Lấy báo cáo thời tiết toàn diện từ API (current, hourly, daily).
-     * Kết quả được cache trong 5 phút để tối ưu performance.
+     * Kết quả được cache (TTL cấu hình bởi cache.weather-reports.*); entry đã
+     * cũ vẫn được trả về ngay trong khi cache refresh nền. Report lỗi (rỗng)
+     * không được cache.
      */
-    @Cacheable(value = "weatherReports", key = "#city")
+    @Cacheable(value = "weatherReports", key = "#city", unless = "!#result.hasDailyData()")
     public ComprehensiveWeatherReport getWeatherReport(String city) {
         try {
-            String geoJson = openMeteoAPI.getCoordinatesForCity(city);
-            JsonNode rootNode = objectMapper.readTree(geoJson);
-            JsonNode resultsNode = rootNode.path("results");
-
-            if (!resultsNode.isArray() || resultsNode.size() == 0) {
-                System.err.println("Could not find coordinates for city: " + city);
-                return new ComprehensiveWeatherReport();
-            }
-
-            JsonNode firstResult = resultsNode.get(0);
-            double lat = firstResult.path("latitude").asDouble();
-            double lon = firstResult.path("longitude").asDouble();
-
-            String weatherJson = openMeteoAPI.getWeatherForecast(lat, lon);
-            ComprehensiveWeatherReport report = objectMapper.readValue(weatherJson, ComprehensiveWeatherReport.class);
-
-            // Log weather data vào database (async)
-            weatherLogService.logWeatherData(city, report);
-
-            return report;
-
+            return weatherReportLoader.loadReport(city);
         } catch (IOException | InterruptedException e) {
             System.err.println("Failed to get weather report for " + city + ": " + e.getMessage());
             return new ComprehensiveWeatherReport();
@@ -103,19 +81,21 @@ public class WeatherService {
     }
 
     /**
-     * Dự báo 7 ngày sử dụng XGBoost nếu có đủ dữ liệu lịch sử.
-     * Nếu không, fallback về API trực tiếp.
+     * Dự báo 7 ngày sử dụng XGBoost nếu có đủ dữ liệu lịch sử (ưu tiên bản tính
+     * sẵn của ForecastPrecomputeService). Nếu không, fallback về API trực tiếp.
      */
     public List<DailyForecast> get7DayForecast(String city) {
         if (useXGBoost) {
+            // Dự báo đã tính sẵn trong ngày: chỉ là một lần tra map
+            List<DailyForecast> precomputed = forecastPrecomputeService.getForecast(city);
+            if (!precomputed.isEmpty()) {
+                return precomputed;
+            }
+
             try {
-                List<DailyForecast> xgboostForecast = get7DayForecastWithXGBoost(city);
+                List<DailyForecast> xgboostForecast = forecastPrecomputeService.computeForecast(city);
                 if (!xgboostForecast.isEmpty()) {
                     System.out.println("✓ Using XGBoost prediction for " + city);
-
-                    // Lưu kết quả dự đoán vào database (async)
-                    predictionResultService.savePredictions(city, xgboostForecast);
-
                     return xgboostForecast;
                 }
             } catch (Exception e) {
@@ -125,112 +105,15 @@ public class WeatherService {
 
         // Fallback: Lấy từ API trực tiếp
         System.out.println("→ Fallback to API for " + city);
-        ComprehensiveWeatherReport report = getWeatherReport(city);
+        ComprehensiveWeatherReport report = self.getWeatherReport(city);
         return get7DayForecastFromReport(report);
     }
 
-    /**
-     * Dự báo 7 ngày sử dụng XGBoost models.
-     */
-    private List<DailyForecast> get7DayForecastWithXGBoost(String city) throws XGBoostError {
-        // 1. Lấy dữ liệu lịch sử từ database
-        List<WeatherHistory> historyList = weatherHistoryRepository.findTop7ByProvinceOrderByRecordDateDesc(city);
-
-        if (historyList.size() < PAST_DAYS_FOR_FEATURES) {
-            System.out.println("Not enough historical data for " + city + " (need " + PAST_DAYS_FOR_FEATURES + ", got "
-                    + historyList.size() + ")");
-            return Collections.emptyList();
-        }
-
-        // 2. Lấy tọa độ
-        double lat = historyList.get(0).getLatitude();
-        double lon = historyList.get(0).getLongitude();
-
-        // 3. Tạo predictions cho 7 ngày tiếp theo
-        List<DailyForecast> predictions = new ArrayList<>();
-
-        // Dự báo hôm nay + 7 ngày tiếp theo = 8 ngày
-        for (int dayOffset = 0; dayOffset <= 7; dayOffset++) {
-            LocalDate predictionDate = LocalDate.now().plusDays(dayOffset);
-
-            // Tạo feature vector
-            float[] features = createFeatureVector(lat, lon, predictionDate, historyList);
-
-            // Dự đoán bằng XGBoost
-            float predictedMaxTemp = dailyMaxTempForecastModel.predict(features);
-            float predictedMinTemp = dailyMinTempForecastModel.predict(features);
-            float predictedRainProb = dailyRainProbForecastModel.predict(features);
-
-            // Clamp rain probability to [0, 1]
-            predictedRainProb = Math.max(0, Math.min(1, predictedRainProb));
-
-            // Map rain probability to weather code
-            int weatherCode = mapRainProbToWeatherCode(predictedRainProb);
-
-            predictions.add(new DailyForecast(
-                    predictionDate,
-                    predictedMaxTemp,
-                    predictedMinTemp,
-                    predictedRainProb,
-                    weatherCode));
-        }
-
-        return predictions;
-    }
-
-    /**
-     * Tạo feature vector cho XGBoost prediction.
-     * Features: [lat, lon, day_of_year, past_day1_max, past_day1_min,
-     * past_day1_rain, ...]
-     */
-    private float[] createFeatureVector(double lat, double lon, LocalDate predictionDate,
-            List<WeatherHistory> historyList) {
-        // Total features: 3 (lat, lon, day_of_year) + 3 days * 3 values = 12
-        float[] features = new float[3 + PAST_DAYS_FOR_FEATURES * 3];
-
-        int idx = 0;
-        features[idx++] = (float) lat;
-        features[idx++] = (float) lon;
-        features[idx++] = predictionDate.getDayOfYear();
-
-        // Add historical features (3 days)
-        for (int i = 0; i < PAST_DAYS_FOR_FEATURES && i < historyList.size(); i++) {
-            WeatherHistory history = historyList.get(i);
-            features[idx++] = history.getTempMax() != null ? history.getTempMax().floatValue() : 25.0f;
-            features[idx++] = history.getTempMin() != null ? history.getTempMin().floatValue() : 20.0f;
-            features[idx++] = history.getPrecipitationProbability() != null
-                    ? history.getPrecipitationProbability().floatValue()
-                    : 0.0f;
-        }
-
-        return features;
-    }
-
-    /**
-     * Map xác suất mưa sang weather code.
-     */
-    private int mapRainProbToWeatherCode(float rainProb) {
-        if (rainProb < 0.1)
-            return 0; // Clear sky
-        if (rainProb < 0.2)
-            return 1; // Mainly clear
-        if (rainProb < 0.3)
-            return 2; // Partly cloudy
-        if (rainProb < 0.4)
-            return 3; // Overcast
-        if (rainProb < 0.5)
-            return 61; // Rain: Slight
-        if (rainProb < 0.7)
-            return 63; // Rain: Moderate
-        return 65; // Rain: Heavy
-    }
-
     /**
      * Trích xuất dự báo 7 ngày trực tiếp từ API response.
      */
     public List<DailyForecast> get7DayForecastFromReport(ComprehensiveWeatherReport comprehensiveReport) {
-        if (comprehensiveReport == null || comprehensiveReport.getDaily() == null ||
-                comprehensiveReport.getDaily().getTime().isEmpty()) {
+        if (comprehensiveReport == null || !comprehensiveReport.hasDailyData()) {
             System.err.println("Comprehensive report is missing daily data.");
             return Collections.emptyList();
         }
@@ -239,25 +122,25 @@ public class WeatherService {
 
         try {
             ComprehensiveWeatherReport.DailyData dailyData = comprehensiveReport.getDaily();
-            List<String> dates = dailyData.getTime();
-            List<Double> maxTemps = dailyData.getTemperatureMax();
-            List<Double> minTemps = dailyData.getTemperatureMin();
-            List<Integer> rainProbs = dailyData.getPrecipitationProbabilityMax();
-            List<Integer> weatherCodes = dailyData.getWeatherCode();
-
-            int forecastDays = dates.size();
-            if (maxTemps.size() != forecastDays || minTemps.size() != forecastDays ||
-                    rainProbs.size() != forecastDays || weatherCodes.size() != forecastDays) {
+            int forecastDays = dailyData.size();
+            if (dailyData.getTemperatureMax().size() != forecastDays
+                    || dailyData.getTemperatureMin().size() != forecastDays
+                    || dailyData.getPrecipitationProbabilityMax().size() != forecastDays
+                    || dailyData.getWeatherCode().size() != forecastDays) {
                 System.err.println("Inconsistent daily data sizes in API report.");
                 return Collections.emptyList();
             }
 
             for (int i = 0; i < forecastDays; i++) {
-                LocalDate date = LocalDate.parse(dates.get(i));
-                double maxTemp = maxTemps.get(i);
-                double minTemp = minTemps.get(i);
-                double rainProb = rainProbs.get(i) / 100.0;
-                int weatherCode = weatherCodes.get(i);
+                LocalDate date = dailyData.getTimeAxis().getDate(i);
+                double maxTemp = dailyData.getTemperatureMax(i);
+                double minTemp = dailyData.getTemperatureMin(i);
+                int rainProbPercent = dailyData.getPrecipitationProbabilityMax(i);
+                double rainProb = rainProbPercent != ComprehensiveWeatherReport.MISSING_INT ? rainProbPercent / 100.0 : 0.0;
+                int weatherCode = dailyData.getWeatherCode(i);
+                if (weatherCode == ComprehensiveWeatherReport.MISSING_INT) {
+                    weatherCode = 0;
+                }
 
                 forecastResults.add(new DailyForecast(date, maxTemp, minTemp, rainProb, weatherCode));
             }
@@ -271,32 +154,90 @@ public class WeatherService {
 
     /**
      * Lấy thời tiết hiện tại cho các tỉnh nổi bật.
-     * Kết quả được cache 5 phút để tránh gọi API lại mỗi lần vào trang chủ.
+     * Các tỉnh chưa có trong cache được tải trước bằng một request batch; mỗi tỉnh
+     * chờ batch đang chạy rồi mới đọc cache (chỉ tải lẻ nếu batch không trả về tỉnh
+     * đó), nên batch chậm không làm các tỉnh gọi lại API lần nữa. Các tỉnh được lấy
+     * song song (giới hạn bởi weatherFanOutExecutor), mỗi tỉnh có timeout riêng
+     * tính cả thời gian chờ batch; tỉnh lỗi/quá hạn bị bỏ qua thay vì làm hỏng cả
+     * danh sách.
+     * Kết quả đầy đủ được cache (TTL cấu hình bởi cache.prominent-provinces.*),
+     * kết quả thiếu tỉnh thì không cache để lần sau thử lại.
      */
-    @Cacheable(value = "prominentProvincesWeather", key = "'all'")
+    @Cacheable(value = "prominentProvincesWeather", key = "'all'", unless = "#result.size() < #prominentProvinces.size()")
     public List<ProvinceCurrentWeather> getCurrentWeatherForProminentProvinces(List<String> prominentProvinces) {
-        List<ProvinceCurrentWeather> provinceWeatherList = new ArrayList<>();
-        for (String province : prominentProvinces) {
-            try {
-                ComprehensiveWeatherReport report = getWeatherReport(province);
-                Optional.ofNullable(report.getCurrent())
-                        .ifPresent(currentWeather -> provinceWeatherList.add(new ProvinceCurrentWeather(
-                                province,
-                                currentWeather.getTemperature(),
-                                currentWeather.getWeatherCode())));
-            } catch (Exception e) {
-                System.err.println("Failed to fetch current weather for " + province + ": " + e.getMessage());
+        // Batch quá hạn vẫn chạy tiếp ở nền và đưa kết quả vào cache cho lần sau
+        CompletableFuture<Void> prefetch = CompletableFuture
+                .runAsync(() -> prefetchMissingReports(prominentProvinces), weatherFanOutExecutor)
+                .exceptionally(e -> null);
+
+        List<CompletableFuture<ProvinceCurrentWeather>> futures = prominentProvinces.stream()
+                .map(province -> prefetch
+                        .thenApplyAsync(ignored -> toProvinceCurrentWeather(province, self.getWeatherReport(province)),
+                                weatherFanOutExecutor)
+                        .completeOnTimeout(null, provinceTimeoutMs, TimeUnit.MILLISECONDS)
+                        .exceptionally(e -> {
+                            System.err.println("Failed to fetch current weather for " + province + ": "
+                                    + e.getMessage());
+                            return null;
+                        }))
+                .collect(Collectors.toList());
+
+        // Giữ đúng thứ tự tỉnh ban đầu, bỏ các tỉnh lỗi/quá hạn
+        return futures.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Tải bằng một request batch các report chưa có trong cache "weatherReports"
+     * và đưa thẳng vào cache. Lỗi chỉ được log, các tỉnh thiếu sẽ được lấy lẻ.
+     */
+    @SuppressWarnings("unchecked")
+    private void prefetchMissingReports(List<String> provinces) {
+        Cache cache = cacheManager.getCache("weatherReports");
+        if (cache == null || !(cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache)) {
+            return;
+        }
+
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = (com.github.benmanes.caffeine.cache.Cache<Object, Object>) cache
+                .getNativeCache();
+        List<String> missing = new ArrayList<>();
+        for (String province : provinces) {
+            // getIfPresent không kích hoạt load/refresh của LoadingCache
+            if (nativeCache.getIfPresent(province) == null) {
+                missing.add(province);
             }
         }
-        return provinceWeatherList;
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        try {
+            weatherReportLoader.loadReports(missing, cache::put);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Batch prefetch failed for prominent provinces: " + e.getMessage());
+        }
+    }
+
+    private ProvinceCurrentWeather toProvinceCurrentWeather(String province, ComprehensiveWeatherReport report) {
+        if (report == null || !report.hasDailyData() || report.getCurrent() == null) {
+            return null;
+        }
+        ComprehensiveWeatherReport.CurrentWeather currentWeather = report.getCurrent();
+        return new ProvinceCurrentWeather(province, currentWeather.getTemperature(),
+                currentWeather.getWeatherCode());
     }
 
     /**
-     * Lấy dự báo theo giờ cho một ngày cụ thể.
+     * Lấy dự báo theo giờ cho một ngày cụ thể: nhiệt độ từ hourly model (chấm điểm cả
+     * report trong một batch, có cache), các giá trị khác từ weather report của API.
      */
     public List<HourlyForecast> getHourlyForecast(String province, LocalDate date) {
-        System.out.println("Getting hourly forecast for " + province + " on " + date);
-        return Collections.emptyList();
+        ComprehensiveWeatherReport report = self.getWeatherReport(province);
+        return hourlyForecastService.getHourlyForecast(province, date, report);
     }
 
     /**
@@ -0,0 +1,105 @@
+package com.weather.forecast.util;
+
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * View List chỉ đọc trên mảng primitive, không copy và không giữ giá trị boxed.
+ * Dùng để các template/code cũ vẫn đọc được cột dữ liệu dạng List.
+ */
+public final class PrimitiveLists {
+
+    private PrimitiveLists() {
+    }
+
+    /**
+     * View của cột double; giá trị NaN (thiếu dữ liệu) được trả về là null.
+     */
+    public static List<Double> of(double[] values) {
+        if (values == null || values.length == 0) {
+            return Collections.emptyList();
+        }
+        return new DoubleListView(values);
+    }
+
+    /**
+     * View của cột float (trả về Double); giá trị NaN được trả về là null.
+     */
+    public static List<Double> of(float[] values) {
+        if (values == null || values.length == 0) {
+            return Collections.emptyList();
+        }
+        return new FloatListView(values);
+    }
+
+    /**
+     * View của cột byte (mã thời tiết, xác suất 0..100); giá trị {@code missing} được trả về là null.
+     */
+    public static List<Integer> of(byte[] values, byte missing) {
+        if (values == null || values.length == 0) {
+            return Collections.emptyList();
+        }
+        return new ByteListView(values, missing);
+    }
+
+    private static final class DoubleListView extends AbstractList<Double> implements RandomAccess {
+        private final double[] values;
+
+        DoubleListView(double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            double value = values[index];
+            return Double.isNaN(value) ? null : value;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class FloatListView extends AbstractList<Double> implements RandomAccess {
+        private final float[] values;
+
+        FloatListView(float[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(int index) {
+            float value = values[index];
+            return Float.isNaN(value) ? null : (double) value;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+
+    private static final class ByteListView extends AbstractList<Integer> implements RandomAccess {
+        private final byte[] values;
+        private final byte missing;
+
+        ByteListView(byte[] values, byte missing) {
+            this.values = values;
+            this.missing = missing;
+        }
+
+        @Override
+        public Integer get(int index) {
+            byte value = values[index];
+            return value == missing ? null : (int) value;
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.weather.forecast.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Chuẩn hoá tên tỉnh/thành để tra cứu không phân biệt dấu, hoa/thường.
+ * Ví dụ: "Hà Nội", "ha noi", "TP. Hà Nội" đều cho cùng key "ha noi".
+ */
+public class ProvinceNameUtil {
+
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern NON_ALPHANUMERIC = Pattern.compile("[^a-z0-9]+");
+    private static final Pattern ADMIN_PREFIX = Pattern.compile("^(thanh pho|tinh|tp) ");
+
+    private ProvinceNameUtil() {
+    }
+
+    /**
+     * Tạo lookup key: bỏ dấu, đ -> d, chữ thường, gộp khoảng trắng/ký tự đặc biệt
+     * và bỏ tiền tố hành chính ("Tỉnh", "Thành phố", "TP.").
+     */
+    public static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        String key = name.replace('đ', 'd').replace('Đ', 'D');
+        key = Normalizer.normalize(key, Normalizer.Form.NFD);
+        key = COMBINING_MARKS.matcher(key).replaceAll("");
+        key = key.toLowerCase(Locale.ROOT);
+        key = NON_ALPHANUMERIC.matcher(key).replaceAll(" ").trim();
+        key = ADMIN_PREFIX.matcher(key).replaceFirst("");
+        return key;
+    }
+}
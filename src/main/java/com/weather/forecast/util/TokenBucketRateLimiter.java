@@ -0,0 +1,54 @@
+package com.weather.forecast.util;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bộ giới hạn tốc độ kiểu token bucket.
+ * Token được nạp lại đều đặn theo {@code permitsPerSecond}, tối đa {@code burst} token.
+ * Khi hết token, thread gọi {@link #acquire()} sẽ giữ chỗ token kế tiếp rồi chờ
+ * (ngoài khoá) cho đến khi token đó được nạp.
+ */
+public class TokenBucketRateLimiter {
+
+    private final double capacity;
+    private final double nanosPerPermit;
+
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucketRateLimiter(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive");
+        }
+        this.capacity = Math.max(1, burst);
+        this.nanosPerPermit = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Lấy một token, chờ nếu cần.
+     *
+     * @throws InterruptedException nếu bị ngắt khi đang chờ
+     */
+    public void acquire() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            refill(System.nanoTime());
+            tokens -= 1;
+            // Token âm nghĩa là đã giữ chỗ trước, chờ đến khi bucket nạp lại về 0
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * nanosPerPermit);
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    private void refill(long now) {
+        long elapsed = now - lastRefillNanos;
+        if (elapsed > 0) {
+            tokens = Math.min(capacity, tokens + elapsed / nanosPerPermit);
+            lastRefillNanos = now;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.weather.forecast.ai;
+
+import ml.dmlc.xgboost4j.java.Booster;
+import ml.dmlc.xgboost4j.java.DMatrix;
+import ml.dmlc.xgboost4j.java.XGBoost;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.InputStream;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * The pure-Java scorer must give the same predictions as the native booster
+ * on the models shipped with the application.
+ */
+class TreeEnsembleModelTest {
+
+    private static final int ROWS = 500;
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "models/daily_model_max_temp.bin",
+            "models/daily_model_min_temp.bin",
+            "models/daily_model_rain_prob.bin" })
+    void matchesNativeBooster(String modelPath) throws Exception {
+        TreeEnsembleModel treeModel;
+        try (InputStream in = open(modelPath)) {
+            treeModel = TreeEnsembleModel.load(in, modelPath);
+        }
+        Booster booster;
+        try (InputStream in = open(modelPath)) {
+            booster = XGBoost.loadModel(in);
+        }
+
+        int ncol = treeModel.getNumFeature();
+        assertEquals(booster.getNumFeature(), ncol);
+
+        // Values in the range of the real features, with some missing ones
+        Random random = new Random(42);
+        float[] data = new float[ROWS * ncol];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = random.nextInt(20) == 0 ? Float.NaN : random.nextFloat() * 120f - 10f;
+        }
+
+        DMatrix dmat = new DMatrix(data, ROWS, ncol, Float.NaN);
+        float[][] expected;
+        try {
+            expected = booster.predict(dmat);
+        } finally {
+            dmat.dispose();
+            booster.dispose();
+        }
+
+        for (int i = 0; i < ROWS; i++) {
+            float actual = treeModel.predict(data, i * ncol);
+            float tolerance = 1e-4f * Math.max(1f, Math.abs(expected[i][0]));
+            assertEquals(expected[i][0], actual, tolerance, "row " + i + " of " + modelPath);
+        }
+    }
+
+    private static InputStream open(String modelPath) {
+        InputStream in = TreeEnsembleModelTest.class.getClassLoader().getResourceAsStream(modelPath);
+        assertNotNull(in, modelPath);
+        return in;
+    }
+}
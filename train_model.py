@@ -8,7 +8,10 @@ Workflow:
 1. Kết nối PostgreSQL và đọc dữ liệu từ weather_history
 2. Chuẩn bị features và targets
 3. Huấn luyện 3 models: max_temp, min_temp, rain_prob
-4. Lưu models vào src/main/resources/models/
+4. Huấn luyện hourly model (nhiệt độ theo giờ) từ dữ liệu theo giờ của Open-Meteo
+   cho các tọa độ có trong weather_history
+5. Lưu models vào src/main/resources/models/ và bản có version vào model registry
+   (models/registry/<model_name>/<version>.bin), ứng dụng đang chạy sẽ tự nạp version mới
 
 Chạy: python train_model.py
 """
@@ -18,8 +21,13 @@ import numpy as np
 import xgboost as xgb
 from sklearn.model_selection import train_test_split
 from sklearn.metrics import mean_squared_error, mean_absolute_error
+import json
 import os
+import shutil
 import sys
+import time
+import urllib.request
+from datetime import date, datetime, timedelta
 
 # Database configuration
 DB_CONFIG = {
@@ -30,6 +38,20 @@ DB_CONFIG = {
     'port': 5432
 }
 
+# Features của hourly model, phải trùng thứ tự với HourlyForecastService.FEATURE_NAMES
+HOURLY_FEATURE_COLUMNS = [
+    'temperature_2m', 'hour', 'day_of_year', 'latitude', 'longitude',
+    'precipitation_probability', 'wind_speed_10m'
+]
+
+# Dữ liệu theo giờ: dự báo đã phát hành trong quá khứ (features) và quan trắc (target)
+HISTORICAL_FORECAST_API_URL = "https://historical-forecast-api.open-meteo.com/v1/forecast"
+ARCHIVE_API_URL = "https://archive-api.open-meteo.com/v1/archive"
+HOURLY_TRAINING_DAYS = int(os.environ.get("HOURLY_TRAINING_DAYS", "90"))
+
+# Thư mục model registry, phải trùng với models.registry.directory của ứng dụng
+MODEL_REGISTRY_DIR = os.environ.get("MODEL_REGISTRY_DIR", "models/registry")
+
 def load_training_data():
     """
     Load dữ liệu thực từ PostgreSQL database (bảng weather_history).
@@ -175,6 +197,76 @@ def prepare_features(df):
     return X, y_max_temp, y_min_temp, y_rain_prob
 
 
+def fetch_hourly(url, latitude, longitude, start_date, end_date, variables):
+    """
+    Gọi Open-Meteo lấy dữ liệu theo giờ, trả về DataFrame có cột time và các biến.
+    Dùng timezone=auto như ứng dụng để cột hour là giờ địa phương.
+    """
+    request_url = (f"{url}?latitude={latitude}&longitude={longitude}"
+                   f"&start_date={start_date}&end_date={end_date}"
+                   f"&hourly={','.join(variables)}&timezone=auto")
+    with urllib.request.urlopen(request_url, timeout=60) as response:
+        hourly = json.load(response)['hourly']
+    df = pd.DataFrame(hourly)
+    df['time'] = pd.to_datetime(df['time'])
+    return df
+
+
+def prepare_hourly_features(df):
+    """
+    Chuẩn bị features và target cho hourly model.
+
+    Features (theo HOURLY_FEATURE_COLUMNS, giống cách Java dựng từ weather report):
+    - temperature_2m, precipitation_probability (0..1), wind_speed_10m: dự báo của Open-Meteo
+    - hour, day_of_year: theo giờ địa phương
+    - latitude, longitude
+    Target: nhiệt độ quan trắc (Archive API) tại cùng giờ.
+    """
+    print("\n" + "=" * 60)
+    print("BƯỚC 4: CHUẨN BỊ DỮ LIỆU HOURLY MODEL")
+    print("=" * 60)
+
+    # Archive API có độ trễ vài ngày
+    end_date = date.today() - timedelta(days=7)
+    start_date = end_date - timedelta(days=HOURLY_TRAINING_DAYS - 1)
+    locations = df[['province', 'latitude', 'longitude']].drop_duplicates('province')
+    print(f"Lấy dữ liệu theo giờ {start_date} → {end_date} cho {len(locations)} tỉnh/thành")
+
+    training_data = []
+    for _, location in locations.iterrows():
+        try:
+            forecast = fetch_hourly(HISTORICAL_FORECAST_API_URL, location['latitude'], location['longitude'],
+                                    start_date, end_date,
+                                    ['temperature_2m', 'precipitation_probability', 'wind_speed_10m'])
+            observed = fetch_hourly(ARCHIVE_API_URL, location['latitude'], location['longitude'],
+                                    start_date, end_date, ['temperature_2m'])
+        except Exception as e:
+            print(f"  ⚠ {location['province']}: {e}")
+            continue
+
+        merged = forecast.merge(observed.rename(columns={'temperature_2m': 'observed_temp'}), on='time')
+        merged['hour'] = merged['time'].dt.hour
+        merged['day_of_year'] = merged['time'].dt.dayofyear
+        merged['latitude'] = location['latitude']
+        merged['longitude'] = location['longitude']
+        merged['precipitation_probability'] = merged['precipitation_probability'] / 100.0
+        training_data.append(merged.dropna(subset=['observed_temp']))
+        time.sleep(0.2)  # Tránh vượt rate limit của Open-Meteo
+
+    if len(training_data) == 0:
+        print("⚠️ Không lấy được dữ liệu theo giờ, bỏ qua hourly model.")
+        return None, None
+
+    final_df = pd.concat(training_data, ignore_index=True)
+    # Giữ NaN: Java truyền NaN khi thiếu dữ liệu, XGBoost xử lý như missing value
+    X = final_df[HOURLY_FEATURE_COLUMNS].astype(np.float32)
+    y = final_df['observed_temp']
+
+    print(f"✓ Features shape: {X.shape}")
+    print(f"✓ Feature columns: {HOURLY_FEATURE_COLUMNS}")
+    return X, y
+
+
 def train_and_save_model(X, y, model_name, output_dir, conn):
     """
     Huấn luyện XGBoost Regressor, lưu model và lưu metrics vào database.
@@ -217,9 +309,14 @@ def train_and_save_model(X, y, model_name, output_dir, conn):
     
     print(f"  ✓ Model saved to: {model_path}")
     
+    # Tạo version tự động theo timestamp, dùng chung cho file registry và model_metrics
+    model_version = datetime.now().strftime("v%Y%m%d_%H%M")
+    registry_path = publish_to_registry(model_path, model_name, model_version)
+    print(f"  ✓ Registry version: {registry_path}")
+    
     # Lưu metrics vào database
     try:
-        save_metrics_to_db(conn, model_name, rmse, mae, len(X_train), len(X_test))
+        save_metrics_to_db(conn, model_name, model_version, rmse, mae, len(X_train), len(X_test))
         print(f"  ✓ Metrics saved to database")
     except Exception as e:
         print(f"  ⚠ Warning: Could not save metrics to DB: {e}")
@@ -227,13 +324,25 @@ def train_and_save_model(X, y, model_name, output_dir, conn):
     return model_path, rmse, mae
 
 
-def save_metrics_to_db(conn, model_name, rmse, mae, train_samples, test_samples):
+def publish_to_registry(model_path, model_name, model_version):
+    """
+    Sao chép model vào model registry. File được ghi tạm rồi đổi tên,
+    nên ứng dụng không bao giờ đọc phải file đang ghi dở.
+    """
+    registry_dir = os.path.join(MODEL_REGISTRY_DIR, model_name)
+    os.makedirs(registry_dir, exist_ok=True)
+    
+    registry_path = os.path.join(registry_dir, model_version + ".bin")
+    tmp_path = registry_path + ".tmp"
+    shutil.copyfile(model_path, tmp_path)
+    os.replace(tmp_path, registry_path)
+    return registry_path
+
+
+def save_metrics_to_db(conn, model_name, model_version, rmse, mae, train_samples, test_samples):
     """
     Lưu training metrics vào bảng model_metrics trong PostgreSQL.
     """
-    import json
-    from datetime import datetime
-    
     cursor = conn.cursor()
     
     # Hyperparameters đang sử dụng
@@ -244,9 +353,6 @@ def save_metrics_to_db(conn, model_name, rmse, mae, train_samples, test_samples)
         "objective": "reg:squarederror"
     })
     
-    # Tạo version tự động theo timestamp
-    model_version = datetime.now().strftime("v%Y%m%d_%H%M")
-    
     sql = """
     INSERT INTO model_metrics 
     (model_name, model_version, rmse, mae, train_samples, test_samples, hyperparameters, trained_at)
@@ -304,6 +410,12 @@ def main():
     path, rmse, mae = train_and_save_model(X, y_rain_prob, "daily_model_rain_prob", output_dir, conn)
     results.append(("Rain Prob", rmse, mae))
     
+    # Hourly Temperature Model
+    X_hourly, y_hourly = prepare_hourly_features(df)
+    if X_hourly is not None:
+        path, rmse, mae = train_and_save_model(X_hourly, y_hourly, "hourly_model", output_dir, conn)
+        results.append(("Hourly Temp", rmse, mae))
+    
     # Close connection
     conn.close()
     
@@ -319,7 +431,7 @@ def main():
     print(f"\nModels đã được lưu vào: {output_dir}")
     print("✓ Metrics đã được lưu vào database (table: model_metrics)")
     print("\n📋 BƯỚC TIẾP THEO:")
-    print("   1. Khởi động lại Spring Boot: mvn spring-boot:run")
+    print(f"   1. Ứng dụng đang chạy sẽ tự nạp version mới từ {MODEL_REGISTRY_DIR} (không cần khởi động lại)")
     print("   2. Truy cập http://localhost:8080 để xem kết quả dự đoán")
     print()
 